@@ -294,6 +294,17 @@ public class Rythm {
         return engine().render(template, args);
     }
 
+    /**
+     * @param template
+     * @param section
+     * @param args
+     * @return the section content
+     * @see RythmEngine#renderSection(String, String, Object...)
+     */
+    public static String renderSection(String template, String section, Object... args) {
+        return engine().renderSection(template, section, args);
+    }
+
     /**
      * @param file
      * @param args
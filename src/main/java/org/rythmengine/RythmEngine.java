@@ -9,11 +9,16 @@ import org.mvel2.MVEL;
 import org.mvel2.integration.PropertyHandler;
 import org.mvel2.integration.PropertyHandlerFactory;
 import org.mvel2.integration.VariableResolverFactory;
+import org.rythmengine.cache.CacheServiceAdapter;
+import org.rythmengine.cache.CompositeKey;
+import org.rythmengine.cache.FragmentCacheMetrics;
+import org.rythmengine.cache.SimpleCacheService;
 import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.conf.RythmConfigurationKey;
 import org.rythmengine.exception.RythmException;
 import org.rythmengine.exception.TagLoadException;
 import org.rythmengine.extension.*;
+import org.rythmengine.i18n.I18nMessages;
 import org.rythmengine.internal.*;
 import org.rythmengine.internal.compiler.*;
 import org.rythmengine.internal.dialect.AutoToString;
@@ -34,6 +39,7 @@ import org.rythmengine.template.*;
 import org.rythmengine.toString.ToStringOption;
 import org.rythmengine.toString.ToStringStyle;
 import org.rythmengine.utils.F;
+import org.rythmengine.utils.I18N;
 import org.rythmengine.utils.IO;
 import org.rythmengine.utils.JSONWrapper;
 import org.rythmengine.utils.S;
@@ -41,6 +47,7 @@ import org.rythmengine.utils.S;
 import java.io.*;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -305,6 +312,46 @@ public class RythmEngine implements IEventDispatcher {
     }
 
     private ICacheService _cacheService = null;
+    private IBulkCacheService _bulkCacheService = null;
+
+    /**
+     * Return the cache service of this engine. If the configured
+     * {@link RythmConfigurationKey#CACHE_SERVICE_IMPL cache service} does not implement
+     * {@link IBulkCacheService} then an adapter of the cache service is returned
+     *
+     * @return the cache service
+     */
+    public IBulkCacheService cacheService() {
+        return _bulkCacheService;
+    }
+
+    private FragmentCacheMetrics _fragmentCacheMetrics = null;
+
+    /**
+     * Return the metrics of <code>@cache</code> blocks and cached tag invocations
+     *
+     * @return the metrics, or <code>null</code> if
+     * {@link RythmConfigurationKey#CACHE_METRICS_ENABLED} is not set
+     */
+    public FragmentCacheMetrics fragmentCacheMetrics() {
+        return _fragmentCacheMetrics;
+    }
+
+    private I18nMessages _i18nMessages = null;
+
+    /**
+     * Return the i18n messages resolved from the configured message sources
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @return the i18n messages
+     */
+    public I18nMessages i18nMessages() {
+        if (null == _i18nMessages) {
+            _i18nMessages = new I18nMessages(conf().messageSources());
+        }
+        return _i18nMessages;
+    }
 
     /**
      * Define the render time settings, which is intialized each time a renderXX method
@@ -621,7 +668,15 @@ public class RythmEngine implements IEventDispatcher {
         int ttl = (Integer) _conf.get(RythmConfigurationKey.DEFAULT_CACHE_TTL);
         _cacheService = _conf.get(RythmConfigurationKey.CACHE_SERVICE_IMPL);
         _cacheService.setDefaultTTL(ttl);
+        if (_cacheService instanceof SimpleCacheService) {
+            ((SimpleCacheService) _cacheService).setMaxEntries(_conf.<Integer>get(RythmConfigurationKey.CACHE_MAX_ENTRIES));
+        }
         _cacheService.startup();
+        _bulkCacheService = CacheServiceAdapter.of(_cacheService);
+        if (_conf.cacheMetricsEnabled()) {
+            _fragmentCacheMetrics = new FragmentCacheMetrics();
+            _fragmentCacheMetrics.registerMBean(id());
+        }
 
 
         // register built-in transformers if enabled
@@ -988,6 +1043,33 @@ public class RythmEngine implements IEventDispatcher {
         }
     }
 
+    /**
+     * Render a section of the template specified by string parameter and
+     * an array of template args. The section could be a section defined
+     * with <code>@section</code>, a default section of the layout template or
+     * an inline tag without arguments defined with <code>@def</code>. The
+     * render result is returned as a String
+     * <p/>
+     * <p>The template is built only until the section is complete, which
+     * makes the method handy to render a fragment of a page</p>
+     * <p/>
+     * <p>See {@link #getTemplate(java.io.File, Object...)} for note on
+     * render args</p>
+     *
+     * @param template either the path of template source file or inline template content
+     * @param section  the section name or inline tag name
+     * @param args     render args array
+     * @return the section content, or an empty string if not found
+     */
+    public String renderSection(String template, String section, Object... args) {
+        try {
+            ITemplate t = getTemplate(template, args);
+            return t.renderSection(section);
+        } finally {
+            renderCleanUp();
+        }
+    }
+
     /**
      * Render template by string parameter and an array of
      * template args. The string parameter could be either
@@ -1698,6 +1780,7 @@ public class RythmEngine implements IEventDispatcher {
                 if (null == tc0) {
                     throw new NullPointerException(String.format("null tc0 found. t.class: %s, name: %s, caller.class: %s", cn, name, caller.getClass()));
                 }
+                addInvokeRelationship(tc0, caller.__getTemplateClass(true));
                 t = tc0.asTemplate(caller, this);
             } else {
                 t = t.__cloneMe(this, caller);
@@ -1741,6 +1824,8 @@ public class RythmEngine implements IEventDispatcher {
 
     // -- cache api
 
+    private final SingleFlight _cacheFlights = new SingleFlight();
+
     /**
      * Cache object using key and args for ttl seconds
      * <p/>
@@ -1755,20 +1840,79 @@ public class RythmEngine implements IEventDispatcher {
         if (conf().cacheDisabled()) return;
         ICacheService cacheService = _cacheService;
         Serializable value = null == o ? "" : (o instanceof Serializable ? (Serializable) o : o.toString());
-        if (args.length > 0) {
-            StringBuilder sb = new StringBuilder(key);
-            for (Object arg : args) {
-                sb.append("-").append(arg);
+        Object cacheKey = cacheKey(key, args);
+        int staleWindow = conf().staleWhileRevalidate();
+        if (staleWindow > 0) {
+            if (0 == ttl) {
+                ttl = _conf.<Number>get(RythmConfigurationKey.DEFAULT_CACHE_TTL).intValue();
+            }
+            if (ttl > 0) {
+                // keep the item for the extra stale window along with the time it become stale
+                value = new Staleable(value, System.currentTimeMillis() + ttl * 1000L);
+                ttl += staleWindow;
             }
-            key = sb.toString();
         }
-        cacheService.put(key, value, ttl);
+        cachePut(cacheService, cacheKey, value, ttl);
+    }
+
+    /**
+     * The cached value and the time it become stale, stored in a single
+     * cache entry when {@link RythmConfigurationKey#CACHE_STALE_WHILE_REVALIDATE}
+     * is set. The string form is the string form of the value, so cache
+     * services writing the entry to an output stream write the value
+     */
+    private static final class Staleable implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Serializable value;
+        final long freshUntil;
+
+        Staleable(Serializable value, long freshUntil) {
+            this.value = value;
+            this.freshUntil = freshUntil;
+        }
+
+        @Override
+        public String toString() {
+            return value.toString();
+        }
+    }
+
+    /*
+     * The key itself if there are no arguments, otherwise a composite key of
+     * the key and the arguments
+     */
+    private static Object cacheKey(String key, Object... args) {
+        return args.length == 0 ? key : new CompositeKey(key, args);
+    }
+
+    private static void cachePut(ICacheService cacheService, Object cacheKey, Serializable value, int ttl) {
+        if (cacheKey instanceof String) {
+            cacheService.put((String) cacheKey, value, ttl);
+        } else if (cacheService instanceof ICompositeKeyCacheService) {
+            ((ICompositeKeyCacheService) cacheService).put((CompositeKey) cacheKey, value, ttl);
+        } else {
+            cacheService.put(cacheKey.toString(), value, ttl);
+        }
+    }
+
+    private static Serializable cacheGet(ICacheService cacheService, Object cacheKey) {
+        if (cacheKey instanceof String) {
+            return cacheService.get((String) cacheKey);
+        } else if (cacheService instanceof ICompositeKeyCacheService) {
+            return ((ICompositeKeyCacheService) cacheService).get((CompositeKey) cacheKey);
+        } else {
+            return cacheService.get(cacheKey.toString());
+        }
     }
 
     /**
      * Store object o into cache service with ttl equals to duration specified.
      * <p/>
-     * <p>The duration is a string to be parsed by @{link #durationParser}</p>
+     * <p>The duration is a string to be parsed by @{link #durationParser}. The
+     * result of parsing is remembered so each duration string is parsed only once.
+     * Literal durations in templates are resolved when the template is compiled
+     * and do not go through this method</p>
      * <p/>
      * <p>The object o is associated with given key and a list of argument values</p>
      * <p/>
@@ -1781,11 +1925,19 @@ public class RythmEngine implements IEventDispatcher {
      */
     public void cache(String key, Object o, String duration, Object... args) {
         if (conf().cacheDisabled()) return;
-        IDurationParser dp = conf().durationParser();
-        int ttl = null == duration ? 0 : dp.parseDuration(duration);
+        int ttl = null == duration ? 0 : durationParser().parseDuration(duration);
         cache(key, o, ttl, args);
     }
 
+    private IDurationParser _durationParser = null;
+
+    private IDurationParser durationParser() {
+        if (null == _durationParser) {
+            _durationParser = new MemoizedDurationParser(conf().durationParser());
+        }
+        return _durationParser;
+    }
+
     /**
      * Evict an object from cache service by key
      *
@@ -1809,20 +1961,104 @@ public class RythmEngine implements IEventDispatcher {
      */
     public Serializable cached(String key, Object... args) {
         if (conf().cacheDisabled()) return null;
-        ICacheService cacheService = _cacheService;
-        if (args.length > 0) {
-            StringBuilder sb = new StringBuilder(key);
-            for (Object arg : args) {
-                sb.append("-").append(arg);
+        Serializable value = cacheGet(_cacheService, cacheKey(key, args));
+        return value instanceof Staleable ? ((Staleable) value).value : value;
+    }
+
+    /**
+     * Check if the cached value using key and a list of argument values is
+     * expired but could still be served while it is being rendered again
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     * @return true if the cached item is stale
+     * @see RythmConfigurationKey#CACHE_STALE_WHILE_REVALIDATE
+     */
+    public boolean cacheStale(String key, Object... args) {
+        if (conf().cacheDisabled() || conf().staleWhileRevalidate() <= 0) return false;
+        Serializable value = cacheGet(_cacheService, cacheKey(key, args));
+        return value instanceof Staleable && ((Staleable) value).freshUntil < System.currentTimeMillis();
+    }
+
+    /**
+     * Become the only thread rendering the item to be cached using key and a
+     * list of argument values. The caller must call {@link #releaseCacheFlight(String, Object...)}
+     * after rendering the item
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param wait whether to wait for another thread rendering the same item
+     * @param args
+     * @return true if the calling thread shall render the item, or false if
+     * another thread is rendering the item
+     * @see RythmConfigurationKey#CACHE_SINGLE_FLIGHT_ENABLED
+     */
+    public boolean acquireCacheFlight(String key, boolean wait, Object... args) {
+        Object cacheKey = cacheKey(key, args);
+        if (!wait) {
+            return _cacheFlights.tryAcquire(cacheKey);
+        }
+        RythmConfiguration conf = conf();
+        return !conf.singleFlightEnabled() || _cacheFlights.acquire(cacheKey, conf.singleFlightTimeout());
+    }
+
+    /**
+     * Release the cache item rendering flight acquired by
+     * {@link #acquireCacheFlight(String, boolean, Object...)}
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     */
+    public void releaseCacheFlight(String key, Object... args) {
+        _cacheFlights.release(cacheKey(key, args));
+    }
+
+    /**
+     * Write cached value using key and a list of argument values to the output
+     * stream encoded with the platform default charset, the charset used when
+     * rendering to an output stream. Cache services storing encoded text could
+     * write the bytes without decoding them, see {@link IBulkCacheService#writeTo(String, java.io.OutputStream, java.nio.charset.Charset)}
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param os
+     * @param key
+     * @param args
+     * @return true if the cached item is found and written to the stream
+     */
+    public boolean writeCached(OutputStream os, String key, Object... args) {
+        if (conf().cacheDisabled()) return false;
+        Object cacheKey = cacheKey(key, args);
+        Charset charset = Charset.defaultCharset();
+        try {
+            if (cacheKey instanceof CompositeKey && _cacheService instanceof ICompositeKeyCacheService) {
+                return ((ICompositeKeyCacheService) _cacheService).writeTo((CompositeKey) cacheKey, os, charset);
             }
-            key = sb.toString();
+            return _bulkCacheService.writeTo(cacheKey.toString(), os, charset);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return cacheService.get(key);
     }
 
     // -- SPI interface
     // -- issue #47
-    private Map<TemplateClass, Set<TemplateClass>> extendMap = new HashMap<TemplateClass, Set<TemplateClass>>();
+    private final TemplateDependencyGraph _dependencies = new TemplateDependencyGraph();
+
+    /**
+     * Return the dependency graph of template classes loaded in this engine.
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @return the template dependency graph
+     */
+    public TemplateDependencyGraph dependencies() {
+        return _dependencies;
+    }
 
     /**
      * Not an API for user application
@@ -1832,12 +2068,23 @@ public class RythmEngine implements IEventDispatcher {
      */
     public void addExtendRelationship(TemplateClass parent, TemplateClass child) {
         if (mode().isProd()) return;
-        Set<TemplateClass> children = extendMap.get(parent);
-        if (null == children) {
-            children = new HashSet<TemplateClass>();
-            extendMap.put(parent, children);
-        }
-        children.add(child);
+        _dependencies.addEdge(parent, child, TemplateDependencyGraph.Kind.EXTEND);
+    }
+
+    /**
+     * Not an API for user application
+     *
+     * @param included
+     * @param includer
+     */
+    public void addIncludeRelationship(TemplateClass included, TemplateClass includer) {
+        if (mode().isProd()) return;
+        _dependencies.addEdge(included, includer, TemplateDependencyGraph.Kind.INCLUDE);
+    }
+
+    private void addInvokeRelationship(TemplateClass tag, TemplateClass caller) {
+        if (mode().isProd()) return;
+        _dependencies.addEdge(tag, caller, TemplateDependencyGraph.Kind.INVOKE);
     }
 
     /**
@@ -1848,14 +2095,28 @@ public class RythmEngine implements IEventDispatcher {
     // called to invalidate all template class which extends the parent
     public void invalidate(TemplateClass parent) {
         if (mode().isProd()) return;
-        Set<TemplateClass> children = extendMap.get(parent);
-        if (null == children) return;
+        Set<TemplateClass> children = _dependencies.dependentsOf(parent, TemplateDependencyGraph.Kind.EXTEND);
         for (TemplateClass child : children) {
             invalidate(child);
             child.reset();
         }
     }
 
+    /**
+     * Orphan the fragments cached by the template class and all templates
+     * invoking it directly or indirectly. This is done by bumping the fragment
+     * generation of the template classes, so the cache service is not scanned
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param tc the reloaded template class
+     */
+    public void invalidateFragments(TemplateClass tc) {
+        for (TemplateClass tc0 : _dependencies.closureOf(tc, TemplateDependencyGraph.Kind.INVOKE)) {
+            tc0.invalidateFragments();
+        }
+    }
+
     // -- Sandbox
 
     private SandboxExecutingService _secureExecutor = null;
@@ -2011,14 +2272,57 @@ public class RythmEngine implements IEventDispatcher {
                 msg = re.getSimpleMessage();
             }
             logger.warn("restarting rythm engine due to %s", msg);
+        } else {
+            TemplateClass changed = ((ClassReloadException) cause).templateClass;
+            if (null != changed && _classLoader.generation() < MAX_RELOAD_GENERATIONS) {
+                reload(changed);
+                return;
+            }
         }
         restart();
     }
 
+    /**
+     * Max number of partial reloads stacked upon the root template class loader before
+     * the engine does a full restart to release the classes held by the previous loaders
+     */
+    private static final int MAX_RELOAD_GENERATIONS = 32;
+
+    /*
+     * Reload the changed template class along with template classes depend on it
+     * in a child class loader. Other template classes are kept untouched
+     */
+    private void reload(TemplateClass changed) {
+        if (isProdMode()) return;
+        Set<TemplateClass> reloads = _dependencies.reloadSetOf(changed);
+        for (TemplateClass tc : reloads) {
+            if (tc != changed) {
+                tc.reset();
+            }
+        }
+        _classLoader = new TemplateClassLoader(_classLoader, reloads);
+        if (null != _i18nMessages) _i18nMessages.clear();
+        I18N.clearBundleCache();
+
+        // clear template tags defined by the reloaded template classes
+        List<String> templateTags = new ArrayList<String>();
+        for (Map.Entry<String, ITemplate> entry : _templates.entrySet()) {
+            ITemplate tmpl = entry.getValue();
+            if (!(tmpl instanceof JavaTagBase) && reloads.contains(tmpl.__getTemplateClass(false))) {
+                templateTags.add(entry.getKey());
+            }
+        }
+        for (String name : templateTags) {
+            _templates.remove(name);
+        }
+    }
+
     private void restart() {
         if (isProdMode()) return;
         _classLoader = new TemplateClassLoader(this);
         //_classes.clear();
+        if (null != _i18nMessages) _i18nMessages.clear();
+        I18N.clearBundleCache();
 
         // clear all template tags which is managed by TemplateClassManager
         List<String> templateTags = new ArrayList<String>();
@@ -2060,6 +2364,9 @@ public class RythmEngine implements IEventDispatcher {
                 logger.error(e, "Error shutdown cache service");
             }
         }
+        if (null != _fragmentCacheMetrics) {
+            _fragmentCacheMetrics.unregisterMBean();
+        }
         if (null != _secureExecutor) {
             try {
                 _secureExecutor.shutdown();
@@ -2084,8 +2391,11 @@ public class RythmEngine implements IEventDispatcher {
         if (null != nonExistsTemplatesChecker) {
             nonExistsTemplatesChecker.onShutdown();
         }
+        if (null != _i18nMessages) _i18nMessages.clear();
+        I18N.clearBundleCache();
         if (null != _templates) _templates.clear();
         if (null != _classes) _classes.clear();
+        _dependencies.clear();
         if (null != _nonExistsTags) _nonExistsTags.clear();
         if (null != nonExistsTemplates) nonExistsTemplates.clear();
         if (null != _nonTmpls) _nonTmpls.clear();
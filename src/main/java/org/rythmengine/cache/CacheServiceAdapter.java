@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.extension.ICacheService;
+
+import java.io.Serializable;
+
+/**
+ * Adapt an {@link ICacheService} which does not implement {@link IBulkCacheService}
+ * to {@link IBulkCacheService}. The bulk operations are implemented by
+ * {@link CacheServiceBase}
+ */
+public class CacheServiceAdapter extends CacheServiceBase {
+
+    private final ICacheService cs;
+
+    public CacheServiceAdapter(ICacheService cacheService) {
+        if (null == cacheService) throw new NullPointerException();
+        this.cs = cacheService;
+    }
+
+    /**
+     * Return the cache service itself if it implements {@link IBulkCacheService}, or
+     * an adapter of the cache service
+     *
+     * @param cacheService
+     * @return the bulk cache service
+     */
+    public static IBulkCacheService of(ICacheService cacheService) {
+        if (cacheService instanceof IBulkCacheService) {
+            return (IBulkCacheService) cacheService;
+        }
+        return new CacheServiceAdapter(cacheService);
+    }
+
+    /**
+     * Return the adapted cache service
+     */
+    public ICacheService cacheService() {
+        return cs;
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        cs.put(key, value, ttl);
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        cs.put(key, value);
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        return cs.remove(key);
+    }
+
+    @Override
+    public void evict(String key) {
+        cs.evict(key);
+    }
+
+    @Override
+    public Serializable get(String key) {
+        return cs.get(key);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return cs.contains(key);
+    }
+
+    @Override
+    public void clear() {
+        cs.clear();
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        cs.setDefaultTTL(ttl);
+    }
+
+    @Override
+    public void shutdown() {
+        cs.shutdown();
+    }
+
+    @Override
+    public void startup() {
+        cs.startup();
+    }
+}
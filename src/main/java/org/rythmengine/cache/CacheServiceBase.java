@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.internal.SingleFlight;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Implement the operations of {@link IBulkCacheService} with the single
+ * item operations of {@link org.rythmengine.extension.ICacheService}. Cache services
+ * could override the operations they support natively
+ */
+public abstract class CacheServiceBase implements IBulkCacheService {
+
+    private static final long LOAD_TIMEOUT = 10000;
+
+    /**
+     * The value stored by {@link #putBytes(String, byte[], java.nio.charset.Charset, int)}
+     */
+    static final class Bytes implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final byte[] bytes;
+        final String charset;
+
+        Bytes(byte[] bytes, Charset charset) {
+            this.bytes = bytes;
+            this.charset = charset.name();
+        }
+
+        byte[] encode(Charset charset) {
+            return charset.name().equals(this.charset) ? bytes : toString().getBytes(charset);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, Charset.forName(charset));
+        }
+    }
+
+    private final SingleFlight loads = new SingleFlight();
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> items = new HashMap<String, Serializable>();
+        for (String key : keys) {
+            Serializable value = get(key);
+            if (null != value) {
+                items.put(key, value);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public void putAll(Map<String, ? extends Serializable> items, int ttl) {
+        for (Map.Entry<String, ? extends Serializable> entry : items.entrySet()) {
+            put(entry.getKey(), entry.getValue(), ttl);
+        }
+    }
+
+    @Override
+    public Serializable computeIfAbsent(String key, Loader loader, int ttl) {
+        Serializable value = get(key);
+        if (null != value) {
+            return value;
+        }
+        if (!loads.acquire(key, LOAD_TIMEOUT)) {
+            // another thread has loaded the item
+            value = get(key);
+            if (null != value) {
+                return value;
+            }
+            loads.acquire(key, LOAD_TIMEOUT);
+        }
+        try {
+            value = get(key);
+            if (null == value) {
+                value = loader.load(key);
+                if (null != value) {
+                    put(key, value, ttl);
+                }
+            }
+            return value;
+        } finally {
+            loads.release(key);
+        }
+    }
+
+    @Override
+    public Future<Serializable> getAsync(final String key) {
+        FutureTask<Serializable> future = new FutureTask<Serializable>(new Callable<Serializable>() {
+            @Override
+            public Serializable call() throws Exception {
+                return get(key);
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    @Override
+    public void putBytes(String key, byte[] value, Charset charset, int ttl) {
+        put(key, new Bytes(value, charset), ttl);
+    }
+
+    @Override
+    public byte[] getBytes(String key, Charset charset) {
+        return encode(get(key), charset);
+    }
+
+    @Override
+    public boolean writeTo(String key, OutputStream os, Charset charset) throws IOException {
+        return write(getBytes(key, charset), os);
+    }
+
+    static boolean write(byte[] bytes, OutputStream os) throws IOException {
+        if (null == bytes) {
+            return false;
+        }
+        os.write(bytes);
+        return true;
+    }
+
+    static byte[] encode(Serializable value, Charset charset) {
+        if (null == value) {
+            return null;
+        }
+        if (value instanceof Bytes) {
+            return ((Bytes) value).encode(charset);
+        }
+        return value.toString().getBytes(charset);
+    }
+}
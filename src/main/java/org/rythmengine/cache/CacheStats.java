@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+/**
+ * An immutable snapshot of cache statistics
+ */
+public class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long expirationCount;
+    private final int size;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+        this.size = size;
+    }
+
+    /**
+     * Return number of lookups found a live item
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return number of lookups found no item or an expired item
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Return number of items removed because the size bound is reached
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Return number of items removed because they are expired
+     */
+    public long expirationCount() {
+        return expirationCount;
+    }
+
+    /**
+     * Return number of items in the cache when the snapshot is taken
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the ratio of hits to lookups, or <code>1.0</code> if there is no lookup yet
+     */
+    public double hitRate() {
+        long total = hitCount + missCount;
+        return 0 == total ? 1.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hit=%s, miss=%s, eviction=%s, expiration=%s, size=%s}",
+                hitCount, missCount, evictionCount, expirationCount, size);
+    }
+}
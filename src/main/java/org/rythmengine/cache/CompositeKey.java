@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.template.ITag;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A cache key composed of a key string and a list of argument values, e.g. the
+ * key of a <code>@cache</code> block and the arguments passed to it.
+ * <p/>
+ * <p>The hash code is computed once when the key is constructed, and keys are
+ * compared by value. Arguments of immutable value types, i.e. String, Integer,
+ * Long, Boolean, Character, Enum and Locale, are compared with <code>equals</code>, other
+ * arguments are compared by their String form, which is the same as the string
+ * key built in the previous versions. Tag parameter lists are compared by their
+ * parameter names and values</p>
+ * <p/>
+ * <p>The String form of the key, <code>key-arg1-arg2...</code>, is built only when
+ * {@link #toString()} is called, e.g. to store the item in a cache service that
+ * does not implement {@link org.rythmengine.extension.ICompositeKeyCacheService}</p>
+ */
+public final class CompositeKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+    private final Object[] args;
+    private final int hash;
+    private transient String str;
+
+    /**
+     * Construct a composite key. The argument array is kept by the key
+     * and shall not be changed after this call
+     *
+     * @param key  the key
+     * @param args the argument values
+     */
+    public CompositeKey(String key, Object... args) {
+        if (null == key) throw new NullPointerException();
+        this.key = key;
+        this.args = normalize(args);
+        this.hash = 31 * key.hashCode() + Arrays.hashCode(this.args);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj instanceof CompositeKey) {
+            CompositeKey that = (CompositeKey) obj;
+            return that.hash == hash && that.key.equals(key) && Arrays.equals(that.args, args);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        if (null == str) {
+            StringBuilder sb = new StringBuilder(key);
+            for (Object arg : args) {
+                sb.append("-").append(arg);
+            }
+            str = sb.toString();
+        }
+        return str;
+    }
+
+    private static Object[] normalize(Object[] args) {
+        Object[] result = args;
+        for (int i = 0; i < args.length; ++i) {
+            Object arg = args[i];
+            Object normalized = normalize(arg);
+            if (normalized != arg) {
+                if (result == args) {
+                    result = args.clone();
+                }
+                result[i] = normalized;
+            }
+        }
+        return result;
+    }
+
+    private static Object normalize(Object arg) {
+        if (null == arg || arg instanceof String || arg instanceof Integer || arg instanceof Long
+                || arg instanceof Boolean || arg instanceof Character || arg instanceof Enum
+                || arg instanceof Locale || arg instanceof CompositeKey) {
+            return arg;
+        }
+        if (arg instanceof ITag.__ParameterList) {
+            ITag.__ParameterList pl = (ITag.__ParameterList) arg;
+            Object[] params = new Object[pl.size() * 2];
+            int i = 0;
+            for (ITag.__Parameter p : pl) {
+                params[i++] = p.name;
+                params[i++] = p.value;
+            }
+            return new CompositeKey("", params);
+        }
+        return arg.toString();
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collect the hits, misses and render time of <code>@cache</code> blocks and
+ * cached tag invocations, keyed by the cache key of the fragment, which identifies
+ * the template class and the line of the fragment.
+ * <p/>
+ * <p>The time to render a missing fragment is measured from the miss to
+ * storing the fragment into the cache in the same thread</p>
+ *
+ * @see org.rythmengine.conf.RythmConfigurationKey#CACHE_METRICS_ENABLED
+ */
+public class FragmentCacheMetrics implements FragmentCacheMetricsMBean {
+
+    private static final ILogger logger = Logger.get(FragmentCacheMetrics.class);
+
+    private static class Fragment {
+        final String key;
+        volatile String templateClass;
+        volatile int line = -1;
+        volatile boolean stored;
+        final AtomicLong hitCount = new AtomicLong();
+        final AtomicLong missCount = new AtomicLong();
+        final AtomicLong evictionCount = new AtomicLong();
+        final AtomicLong storeCount = new AtomicLong();
+        final AtomicLong storedSize = new AtomicLong();
+        final AtomicLong renderCount = new AtomicLong();
+        final AtomicLong renderNanos = new AtomicLong();
+
+        Fragment(String key) {
+            this.key = key;
+        }
+
+        FragmentStats stats() {
+            return new FragmentStats(key, templateClass, line, hitCount.get(), missCount.get(), evictionCount.get(),
+                    storeCount.get(), storedSize.get(), renderCount.get(), renderNanos.get());
+        }
+    }
+
+    private static final Comparator<FragmentStats> TIME_SAVED_DESC = new Comparator<FragmentStats>() {
+        @Override
+        public int compare(FragmentStats o1, FragmentStats o2) {
+            return Double.compare(o2.timeSaved(), o1.timeSaved());
+        }
+    };
+
+    private final ConcurrentHashMap<String, Fragment> fragments = new ConcurrentHashMap<String, Fragment>();
+
+    // the time the missing fragments are found missing in the current thread
+    private final ThreadLocal<Map<String, Long>> missedAt = new ThreadLocal<Map<String, Long>>() {
+        @Override
+        protected Map<String, Long> initialValue() {
+            return new HashMap<String, Long>();
+        }
+    };
+
+    private ObjectName objectName;
+
+    private Fragment fragment(String key) {
+        Fragment f = fragments.get(key);
+        if (null == f) {
+            Fragment f0 = new Fragment(key);
+            f = fragments.putIfAbsent(key, f0);
+            if (null == f) {
+                f = f0;
+            }
+        }
+        return f;
+    }
+
+    /**
+     * Register the template class and line of a fragment. Called when the
+     * template is compiled
+     *
+     * @param key           the cache key of the fragment
+     * @param templateClass the name of the template class
+     * @param line          the line of the fragment in the template source
+     */
+    public void register(String key, String templateClass, int line) {
+        Fragment f = fragment(key);
+        f.templateClass = templateClass;
+        f.line = line;
+    }
+
+    /**
+     * Record a hit of the fragment
+     *
+     * @param key the cache key of the fragment
+     */
+    public void hit(String key) {
+        fragment(key).hitCount.incrementAndGet();
+    }
+
+    /**
+     * Record a miss of the fragment. The current thread is expected to render
+     * the fragment and {@link #stored(String, java.io.Serializable) store} it
+     *
+     * @param key the cache key of the fragment
+     */
+    public void miss(String key) {
+        Fragment f = fragment(key);
+        f.missCount.incrementAndGet();
+        if (f.stored) {
+            f.evictionCount.incrementAndGet();
+        }
+        missedAt.get().put(key, System.nanoTime());
+    }
+
+    /**
+     * Record the fragment rendered by the current thread is stored into the cache
+     *
+     * @param key   the cache key of the fragment
+     * @param value the rendered fragment
+     */
+    public void stored(String key, Serializable value) {
+        Fragment f = fragment(key);
+        f.stored = true;
+        f.storeCount.incrementAndGet();
+        if (value instanceof String) {
+            f.storedSize.addAndGet(((String) value).length());
+        }
+        Long start = missedAt.get().remove(key);
+        if (null != start) {
+            f.renderCount.incrementAndGet();
+            f.renderNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Return the statistics of a fragment
+     *
+     * @param key the cache key of the fragment
+     * @return the statistics or <code>null</code> if there is no metrics of the fragment
+     */
+    public FragmentStats stats(String key) {
+        Fragment f = fragments.get(key);
+        return null == f ? null : f.stats();
+    }
+
+    /**
+     * Return the statistics of all fragments, ordered by time saved descending
+     */
+    public List<FragmentStats> stats() {
+        List<FragmentStats> l = new ArrayList<FragmentStats>(fragments.size());
+        for (Fragment f : fragments.values()) {
+            l.add(f.stats());
+        }
+        Collections.sort(l, TIME_SAVED_DESC);
+        return l;
+    }
+
+    @Override
+    public int getFragmentCount() {
+        return fragments.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        long n = 0;
+        for (Fragment f : fragments.values()) {
+            n += f.hitCount.get();
+        }
+        return n;
+    }
+
+    @Override
+    public long getMissCount() {
+        long n = 0;
+        for (Fragment f : fragments.values()) {
+            n += f.missCount.get();
+        }
+        return n;
+    }
+
+    @Override
+    public double getTimeSaved() {
+        double d = 0;
+        for (Fragment f : fragments.values()) {
+            d += f.stats().timeSaved();
+        }
+        return d;
+    }
+
+    @Override
+    public String[] getFragments() {
+        List<FragmentStats> l = stats();
+        String[] sa = new String[l.size()];
+        for (int i = 0; i < sa.length; ++i) {
+            sa[i] = l.get(i).toString();
+        }
+        return sa;
+    }
+
+    @Override
+    public void reset() {
+        for (Fragment f : fragments.values()) {
+            Fragment f0 = new Fragment(f.key);
+            f0.templateClass = f.templateClass;
+            f0.line = f.line;
+            fragments.replace(f.key, f, f0);
+        }
+    }
+
+    /**
+     * Register this metrics to the platform MBean server
+     *
+     * @param engineId the id of the engine, used in the object name
+     */
+    public synchronized void registerMBean(String engineId) {
+        try {
+            String s = "org.rythmengine:type=FragmentCache,engine=" + ObjectName.quote(String.valueOf(engineId));
+            ObjectName name = new ObjectName(s);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                // another engine with the same id
+                name = new ObjectName(s + ",instance=" + System.identityHashCode(this));
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (Exception e) {
+            logger.warn(e, "error registering fragment cache metrics MBean");
+        } catch (NoClassDefFoundError e) {
+            // JMX is not available, e.g. on google app engine
+            logger.warn("JMX not available, fragment cache metrics MBean not registered");
+        }
+    }
+
+    /**
+     * Unregister this metrics from the platform MBean server
+     */
+    public synchronized void unregisterMBean() {
+        if (null == objectName) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            logger.warn(e, "error unregistering fragment cache metrics MBean");
+        }
+        objectName = null;
+    }
+}
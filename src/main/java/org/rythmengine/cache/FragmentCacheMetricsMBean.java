@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+/**
+ * The JMX management interface of {@link FragmentCacheMetrics}
+ */
+public interface FragmentCacheMetricsMBean {
+
+    /**
+     * Return number of fragments with metrics
+     */
+    int getFragmentCount();
+
+    /**
+     * Return number of hits of all fragments
+     */
+    long getHitCount();
+
+    /**
+     * Return number of misses of all fragments
+     */
+    long getMissCount();
+
+    /**
+     * Return the estimated time saved in milliseconds by caching all fragments
+     */
+    double getTimeSaved();
+
+    /**
+     * Return the statistics of each fragment, ordered by time saved descending
+     */
+    String[] getFragments();
+
+    /**
+     * Clear the metrics
+     */
+    void reset();
+}
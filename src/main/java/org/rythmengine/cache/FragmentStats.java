@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+/**
+ * An immutable snapshot of the statistics of a <code>@cache</code> block or a
+ * cached tag invocation
+ */
+public class FragmentStats {
+
+    private final String key;
+    private final String templateClass;
+    private final int line;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long storeCount;
+    private final long storedSize;
+    private final long renderCount;
+    private final long renderNanos;
+
+    public FragmentStats(String key, String templateClass, int line, long hitCount, long missCount, long evictionCount,
+                         long storeCount, long storedSize, long renderCount, long renderNanos) {
+        this.key = key;
+        this.templateClass = templateClass;
+        this.line = line;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.storeCount = storeCount;
+        this.storedSize = storedSize;
+        this.renderCount = renderCount;
+        this.renderNanos = renderNanos;
+    }
+
+    /**
+     * Return the cache key of the fragment, not including the cache arguments
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Return the name of the template class contains the fragment, or <code>null</code>
+     * if the fragment is not registered when the template is compiled, e.g. the template
+     * class is loaded from precompiled byte code
+     */
+    public String templateClass() {
+        return templateClass;
+    }
+
+    /**
+     * Return the line of the fragment in the template source, or <code>-1</code> if unknown
+     */
+    public int line() {
+        return line;
+    }
+
+    /**
+     * Return number of times the fragment is output from the cache
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return number of times the fragment is rendered because it is not found in the cache
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Return number of misses of the fragment after it has been stored, i.e. the
+     * fragment has expired or been evicted from the cache
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Return the average size of the stored fragment in characters
+     */
+    public long averageStoredSize() {
+        return 0 == storeCount ? 0 : storedSize / storeCount;
+    }
+
+    /**
+     * Return the average time in milliseconds to render the fragment when it is missing
+     */
+    public double averageRenderTime() {
+        return 0 == renderCount ? 0 : renderNanos / 1000000.0 / renderCount;
+    }
+
+    /**
+     * Return the estimated time saved in milliseconds by the cache, i.e. the average render
+     * time multiplied by number of hits
+     */
+    public double timeSaved() {
+        return averageRenderTime() * hitCount;
+    }
+
+    /**
+     * Return the ratio of hits to lookups, or <code>1.0</code> if there is no lookup yet
+     */
+    public double hitRate() {
+        long total = hitCount + missCount;
+        return 0 == total ? 1.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FragmentStats{template=%s, line=%s, hit=%s, miss=%s, eviction=%s, avgSize=%s, avgRenderMs=%.3f, savedMs=%.1f}",
+                templateClass, line, hitCount, missCount, evictionCount, averageStoredSize(), averageRenderTime(), timeSaved());
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.MemcachedClient;
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * implement cache service based on <a href="https://github.com/couchbase/spymemcached">spymemcached</a>,
+ * so that the cached items are shared by all nodes connected to the same memcached servers.
+ * <p/>
+ * <p>Multiple keys are fetched from the servers in one round trip by {@link #getAll(java.util.Collection)}.
+ * Errors talking to the servers are logged and treated as cache misses</p>
+ * <p/>
+ * <p>Keys are prefixed with a namespace. Keys longer than the memcached limit or containing
+ * whitespace or control characters are replaced by their name based UUID</p>
+ */
+public class MemcachedCacheService extends CacheServiceBase {
+
+    private static final ILogger logger = Logger.get(MemcachedCacheService.class);
+
+    /**
+     * The default key namespace
+     */
+    public static final String DEFAULT_NAMESPACE = "rythm:";
+
+    // memcached treats expiration longer than 30 days as unix time
+    private static final int MAX_RELATIVE_EXPIRATION = 60 * 60 * 24 * 30;
+    private static final int MAX_KEY_LENGTH = 250;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final List<InetSocketAddress> servers;
+    private final String namespace;
+    private volatile MemcachedClient client;
+    private int defaultTTL = 60;
+
+    /**
+     * Construct a memcached cache service
+     *
+     * @param servers the server list in the form of <code>host:port host2:port</code>
+     */
+    public MemcachedCacheService(String servers) {
+        this(servers, DEFAULT_NAMESPACE);
+    }
+
+    /**
+     * Construct a memcached cache service
+     *
+     * @param servers   the server list in the form of <code>host:port host2:port</code>
+     * @param namespace prefix of all keys stored by this service
+     */
+    public MemcachedCacheService(String servers, String namespace) {
+        this.servers = AddrUtil.getAddresses(servers);
+        this.namespace = null == namespace ? "" : namespace;
+    }
+
+    /**
+     * Construct a memcached cache service with a client created by the
+     * application. The client is shut down when the service is shut down
+     *
+     * @param client    the memcached client
+     * @param namespace prefix of all keys stored by this service
+     */
+    public MemcachedCacheService(MemcachedClient client, String namespace) {
+        this.servers = null;
+        this.client = client;
+        this.namespace = null == namespace ? "" : namespace;
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        try {
+            client().set(key(key), expiration(ttl), value);
+        } catch (RuntimeException e) {
+            logger.warn(e, "error storing cache item: %s", key);
+        }
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        put(key, value, defaultTTL);
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        Serializable value = get(key);
+        evict(key);
+        return value;
+    }
+
+    @Override
+    public void evict(String key) {
+        try {
+            client().delete(key(key));
+        } catch (RuntimeException e) {
+            logger.warn(e, "error evicting cache item: %s", key);
+        }
+    }
+
+    @Override
+    public Serializable get(String key) {
+        try {
+            return (Serializable) client().get(key(key));
+        } catch (RuntimeException e) {
+            logger.warn(e, "error getting cache item: %s", key);
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, String> mapped = new HashMap<String, String>();
+        for (String key : keys) {
+            mapped.put(key(key), key);
+        }
+        Map<String, Serializable> result = new HashMap<String, Serializable>();
+        try {
+            for (Map.Entry<String, Object> entry : client().getBulk(mapped.keySet()).entrySet()) {
+                result.put(mapped.get(entry.getKey()), (Serializable) entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            logger.warn(e, "error getting cache items");
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Future<Serializable> getAsync(String key) {
+        try {
+            Future<?> future = client().asyncGet(key(key));
+            return (Future<Serializable>) future;
+        } catch (RuntimeException e) {
+            logger.warn(e, "error getting cache item: %s", key);
+            FutureTask<Serializable> miss = new FutureTask<Serializable>(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, null);
+            miss.run();
+            return miss;
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return null != get(key);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            client().flush();
+        } catch (RuntimeException e) {
+            logger.warn(e, "error clearing cache");
+        }
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        if (ttl == 0) throw new IllegalArgumentException("time to live value couldn't be zero");
+        this.defaultTTL = ttl;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (null != client) {
+            client.shutdown(1, TimeUnit.SECONDS);
+            client = null;
+        }
+    }
+
+    @Override
+    public synchronized void startup() {
+        if (null == client) {
+            if (null == servers) {
+                throw new IllegalStateException("memcached client has been shut down");
+            }
+            try {
+                client = new MemcachedClient(servers);
+            } catch (IOException e) {
+                throw new RuntimeException("error connecting to memcached servers: " + servers, e);
+            }
+        }
+    }
+
+    private MemcachedClient client() {
+        MemcachedClient client = this.client;
+        if (null == client) {
+            startup();
+            client = this.client;
+        }
+        return client;
+    }
+
+    private static int expiration(int ttl) {
+        if (ttl < 0) {
+            return 0;
+        }
+        if (ttl > MAX_RELATIVE_EXPIRATION) {
+            return (int) (System.currentTimeMillis() / 1000 + ttl);
+        }
+        return ttl;
+    }
+
+    private String key(String key) {
+        String s = namespace + key;
+        if (s.length() > MAX_KEY_LENGTH || !isValidKey(s)) {
+            s = namespace + UUID.nameUUIDFromBytes(key.getBytes(UTF8)).toString();
+        }
+        return s;
+    }
+
+    private static boolean isValidKey(String s) {
+        for (int i = 0, len = s.length(); i < len; ++i) {
+            char c = s.charAt(i);
+            if (c <= ' ' || c >= 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,845 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.exception.FastRuntimeException;
+import org.rythmengine.extension.ICompositeKeyCacheService;
+import org.rythmengine.internal.RythmThreadFactory;
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A cache service stores items as encoded bytes in direct {@link ByteBuffer} slabs
+ * outside of the java heap, so that long lived fragments do not stay in the old
+ * generation.
+ * <p/>
+ * <p>The memory is allocated in slabs of the same size up to the byte budget. Each
+ * slab is assigned to a size class and carved into chunks of the class size. An item
+ * is stored in a chunk of the smallest class it fits in. When a class runs out of
+ * chunks after the budget is used up, an expired item of the class is reclaimed, or
+ * an empty slab of another class is moved to the class, or the slab holding the least
+ * recently used item of all classes is emptied and moved to the class if that item is
+ * older than the least recently used item of the class, otherwise the least recently
+ * used item of the class is evicted. Expired items are swept periodically once the
+ * service is {@link #startup() started}. Items bigger than a slab are not cached</p>
+ * <p/>
+ * <p>String items are encoded in UTF-8, so a cached fragment could be
+ * {@link #writeTo(String, java.io.OutputStream, java.nio.charset.Charset) written} to
+ * an UTF-8 stream without decoding it back to a String. Other items are stored in java
+ * serialization form</p>
+ * <p/>
+ * <p>To use it, set {@link org.rythmengine.conf.RythmConfigurationKey#CACHE_SERVICE_IMPL "cache.service.impl"}
+ * to an instance of this class</p>
+ */
+public class OffHeapCacheService extends CacheServiceBase implements ICompositeKeyCacheService {
+
+    private static final ILogger logger = Logger.get(OffHeapCacheService.class);
+
+    /**
+     * The default byte budget: 64MB
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The default slab size: 1MB
+     */
+    public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double CHUNK_SIZE_FACTOR = 1.25;
+    private static final int MAX_SCRATCH_SIZE = 64 * 1024;
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final long SWEEP_INTERVAL = 1000;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static class TimerThreadFactory extends RythmThreadFactory {
+        private TimerThreadFactory() {
+            super("rythm-off-heap-timer");
+        }
+    }
+
+    private static final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[4096];
+        }
+    };
+
+    private static class Item {
+        final Object key;
+        final boolean isString;
+        final int sizeClass;
+        final int slab;
+        final int offset;
+        final int length;
+        final long expireAt;
+        final long seq;
+        // access order links in the size class and the access sequence, guarded by the write lock
+        Item prev;
+        Item next;
+        long accessSeq;
+
+        Item(Object key, boolean isString, int sizeClass, int slab, int offset, int length, long expireAt, long seq) {
+            this.key = key;
+            this.isString = isString;
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.expireAt = expireAt;
+            this.seq = seq;
+        }
+
+        boolean expired(long now) {
+            return expireAt <= now;
+        }
+    }
+
+    private static final Comparator<Item> EXPIRE_ORDER = new Comparator<Item>() {
+        @Override
+        public int compare(Item o1, Item o2) {
+            if (o1.expireAt != o2.expireAt) {
+                return o1.expireAt < o2.expireAt ? -1 : 1;
+            }
+            return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+        }
+    };
+
+    private static class SizeClass {
+        final int index;
+        final int chunkSize;
+        // free chunks encoded as slab index << 32 | offset
+        long[] freeChunks = new long[16];
+        int freeCount;
+        // the head is the least recently used item
+        Item head;
+        Item tail;
+
+        SizeClass(int index, int chunkSize) {
+            this.index = index;
+            this.chunkSize = chunkSize;
+        }
+
+        void free(int slab, int offset) {
+            if (freeCount == freeChunks.length) {
+                freeChunks = Arrays.copyOf(freeChunks, freeCount * 2);
+            }
+            freeChunks[freeCount++] = ((long) slab << 32) | offset;
+        }
+
+        void linkLast(Item item) {
+            item.prev = tail;
+            item.next = null;
+            if (null == tail) {
+                head = item;
+            } else {
+                tail.next = item;
+            }
+            tail = item;
+        }
+
+        void unlink(Item item) {
+            Item prev = item.prev, next = item.next;
+            if (null == prev) {
+                if (head == item) head = next;
+            } else {
+                prev.next = next;
+            }
+            if (null == next) {
+                if (tail == item) tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            item.prev = null;
+            item.next = null;
+        }
+
+        // drop the free chunks of the slab moved to another class
+        void dropSlab(int slab) {
+            int n = 0;
+            for (int i = 0; i < freeCount; ++i) {
+                long chunk = freeChunks[i];
+                if ((int) (chunk >>> 32) != slab) {
+                    freeChunks[n++] = chunk;
+                }
+            }
+            freeCount = n;
+        }
+
+        void reset() {
+            freeCount = 0;
+            head = null;
+            tail = null;
+        }
+    }
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final SizeClass[] classes;
+
+    private final ReentrantReadWriteLock lock_ = new ReentrantReadWriteLock();
+    // all fields below are guarded by lock_
+    private final Map<Object, Item> items_ = new HashMap<Object, Item>();
+    private final List<ByteBuffer> slabs_ = new ArrayList<ByteBuffer>();
+    // slabs not assigned to any size class
+    private final Deque<Integer> freeSlabs_ = new ArrayDeque<Integer>();
+    // the size class of each slab, and number of chunks in use of each slab
+    private final int[] slabClass_;
+    private final int[] slabUsed_;
+    // items expire in the future ordered by the expiration time
+    private final TreeSet<Item> expireSet_ = new TreeSet<Item>(EXPIRE_ORDER);
+    private long seq_;
+
+    private ScheduledExecutorService scheduler = null;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+
+    private int defaultTTL = 60;
+
+    public OffHeapCacheService() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Construct an off heap cache service with the byte budget
+     *
+     * @param maxBytes the max number of bytes allocated for the cached items
+     */
+    public OffHeapCacheService(long maxBytes) {
+        this(maxBytes, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Construct an off heap cache service with the byte budget and slab size
+     *
+     * @param maxBytes the max number of bytes allocated for the cached items
+     * @param slabSize the size of memory allocated at a time, which is also the max size of an item
+     */
+    public OffHeapCacheService(long maxBytes, int slabSize) {
+        if (slabSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("slab size shall not be less than " + MIN_CHUNK_SIZE);
+        }
+        if (maxBytes < slabSize) {
+            throw new IllegalArgumentException("byte budget shall not be less than the slab size");
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, maxBytes / slabSize);
+        this.slabClass_ = new int[maxSlabs];
+        this.slabUsed_ = new int[maxSlabs];
+        List<SizeClass> l = new ArrayList<SizeClass>();
+        int size = MIN_CHUNK_SIZE;
+        while (size < slabSize) {
+            l.add(new SizeClass(l.size(), size));
+            size = (int) Math.min(slabSize, (((long) (size * CHUNK_SIZE_FACTOR) + 7) & ~7L));
+        }
+        l.add(new SizeClass(l.size(), slabSize));
+        this.classes = l.toArray(new SizeClass[l.size()]);
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        put0(key, value, ttl);
+    }
+
+    @Override
+    public void put(CompositeKey key, Serializable value, int ttl) {
+        put0(key, value, ttl);
+    }
+
+    private void put0(Object key, Serializable value, int ttl) {
+        if (null == key) throw new NullPointerException();
+        boolean isString = value instanceof String;
+        byte[] ba = isString ? ((String) value).getBytes(CHARSET) : serialize(value);
+        store(key, ba, isString, ttl);
+    }
+
+    /**
+     * Store encoded text. If the charset is UTF-8 the bytes are stored as they
+     * are, and could be written to an UTF-8 output stream or returned by
+     * {@link #getBytes(String, java.nio.charset.Charset)} without decoding
+     */
+    @Override
+    public void putBytes(String key, byte[] value, Charset charset, int ttl) {
+        if (CHARSET.equals(charset)) {
+            if (null == key) throw new NullPointerException();
+            store(key, value, true, ttl);
+        } else {
+            super.putBytes(key, value, charset, ttl);
+        }
+    }
+
+    private void store(Object key, byte[] ba, boolean isString, int ttl) {
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        long expireAt = ttl < 0 ? NEVER : System.currentTimeMillis() + ttl * 1000L;
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        wl.lock();
+        try {
+            Item old = items_.remove(key);
+            if (null != old) {
+                release(old);
+            }
+            int sizeClass = sizeClass(ba.length);
+            long chunk = sizeClass < 0 ? -1 : allocate(sizeClass);
+            if (chunk < 0) {
+                rejectionCount.incrementAndGet();
+                if (logger.isTraceEnabled()) {
+                    logger.trace("cannot allocate %s bytes for %s", ba.length, key);
+                }
+                return;
+            }
+            int slab = (int) (chunk >>> 32), offset = (int) chunk;
+            ByteBuffer buf = slabs_.get(slab).duplicate();
+            buf.position(offset);
+            buf.put(ba);
+            Item item = new Item(key, isString, sizeClass, slab, offset, ba.length, expireAt, ++seq_);
+            items_.put(key, item);
+            link(item);
+            if (NEVER != expireAt) {
+                expireSet_.add(item);
+            }
+        } finally {
+            wl.unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        put(key, value, defaultTTL);
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        Serializable value = get(key);
+        evict(key);
+        return value;
+    }
+
+    @Override
+    public void evict(String key) {
+        evict0(key);
+    }
+
+    @Override
+    public void evict(CompositeKey key) {
+        evict0(key);
+    }
+
+    private void evict0(Object key) {
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        wl.lock();
+        try {
+            Item item = items_.remove(key);
+            if (null != item) {
+                release(item);
+            }
+        } finally {
+            wl.unlock();
+        }
+    }
+
+    @Override
+    public Serializable get(String key) {
+        return get0(key);
+    }
+
+    @Override
+    public Serializable get(CompositeKey key) {
+        return get0(key);
+    }
+
+    private Serializable get0(Object key) {
+        Item item;
+        byte[] ba;
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            item = lookup(key);
+            if (null == item) {
+                return null;
+            }
+            ba = new byte[item.length];
+            read(item, ba);
+        } finally {
+            rl.unlock();
+        }
+        touch(item);
+        return item.isString ? new String(ba, CHARSET) : deserialize(ba);
+    }
+
+    @Override
+    public byte[] getBytes(String key, Charset charset) {
+        if (!CHARSET.equals(charset)) {
+            return super.getBytes(key, charset);
+        }
+        Item item;
+        byte[] ba;
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            item = lookup(key);
+            if (null == item) {
+                return null;
+            }
+            ba = new byte[item.length];
+            read(item, ba);
+        } finally {
+            rl.unlock();
+        }
+        touch(item);
+        return item.isString ? ba : encode(deserialize(ba), charset);
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> result = new HashMap<String, Serializable>();
+        List<Item> found = new ArrayList<Item>();
+        List<byte[]> bytes = new ArrayList<byte[]>();
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            for (String key : keys) {
+                Item item = lookup(key);
+                if (null != item) {
+                    byte[] ba = new byte[item.length];
+                    read(item, ba);
+                    found.add(item);
+                    bytes.add(ba);
+                }
+            }
+        } finally {
+            rl.unlock();
+        }
+        for (int i = 0; i < found.size(); ++i) {
+            Item item = found.get(i);
+            byte[] ba = bytes.get(i);
+            touch(item);
+            result.put((String) item.key, item.isString ? new String(ba, CHARSET) : deserialize(ba));
+        }
+        return result;
+    }
+
+    /**
+     * Write a cached item to the output stream encoded with the charset. The bytes
+     * of a String item are written without decoding them if the charset is UTF-8
+     *
+     * @param key     the key
+     * @param os      the output stream
+     * @param charset the charset of the output stream
+     * @return <code>true</code> if the item is found and written to the stream
+     * @throws IOException
+     */
+    @Override
+    public boolean writeTo(String key, OutputStream os, Charset charset) throws IOException {
+        return writeTo0(key, os, charset);
+    }
+
+    @Override
+    public boolean writeTo(CompositeKey key, OutputStream os, Charset charset) throws IOException {
+        return writeTo0(key, os, charset);
+    }
+
+    private boolean writeTo0(Object key, OutputStream os, Charset charset) throws IOException {
+        Item item;
+        byte[] ba;
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            item = lookup(key);
+            if (null == item) {
+                return false;
+            }
+            ba = item.isString ? buffer(item.length) : new byte[item.length];
+            read(item, ba);
+        } finally {
+            rl.unlock();
+        }
+        touch(item);
+        // write out of the lock so that a slow stream does not block the cache
+        if (item.isString) {
+            if (CHARSET.equals(charset)) {
+                os.write(ba, 0, item.length);
+            } else {
+                os.write(new String(ba, 0, item.length, CHARSET).getBytes(charset));
+            }
+        } else {
+            Serializable value = deserialize(ba);
+            if (null != value) {
+                os.write(value.toString().getBytes(charset));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            Item item = items_.get(key);
+            return null != item && !item.expired(System.currentTimeMillis());
+        } finally {
+            rl.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        wl.lock();
+        try {
+            items_.clear();
+            expireSet_.clear();
+            for (SizeClass sc : classes) {
+                sc.reset();
+            }
+            freeSlabs_.clear();
+            for (int i = 0; i < slabs_.size(); ++i) {
+                freeSlabs_.add(i);
+                slabUsed_[i] = 0;
+            }
+        } finally {
+            wl.unlock();
+        }
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        if (ttl == 0) throw new IllegalArgumentException("time to live value couldn't be zero");
+        this.defaultTTL = ttl;
+    }
+
+    @Override
+    public void shutdown() {
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        wl.lock();
+        try {
+            clear();
+            // let the direct buffers be garbage collected
+            freeSlabs_.clear();
+            slabs_.clear();
+        } finally {
+            wl.unlock();
+        }
+        if (null != scheduler) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Start sweeping expired items. Slabs are allocated on demand
+     */
+    @Override
+    public void startup() {
+        if (null == scheduler) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new TimerThreadFactory());
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sweep();
+                }
+            }, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reclaim the chunks of expired items
+     */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        wl.lock();
+        try {
+            while (!expireSet_.isEmpty()) {
+                Item item = expireSet_.first();
+                if (!item.expired(now)) {
+                    break;
+                }
+                remove(item);
+                expirationCount.incrementAndGet();
+            }
+        } finally {
+            wl.unlock();
+        }
+    }
+
+    /**
+     * Return number of bytes allocated for the slabs
+     */
+    public long allocatedBytes() {
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            return (long) slabs_.size() * slabSize;
+        } finally {
+            rl.unlock();
+        }
+    }
+
+    /**
+     * Return number of items could not be stored because the item is bigger than
+     * a slab or there is no memory available for its size class
+     */
+    public long rejectionCount() {
+        return rejectionCount.get();
+    }
+
+    /**
+     * Return a snapshot of the cache statistics
+     */
+    public CacheStats stats() {
+        int size;
+        ReentrantReadWriteLock.ReadLock rl = lock_.readLock();
+        rl.lock();
+        try {
+            size = items_.size();
+        } finally {
+            rl.unlock();
+        }
+        return new CacheStats(hitCount.get(), missCount.get(), evictionCount.get(), expirationCount.get(), size);
+    }
+
+    // must be called with the read lock held
+    private Item lookup(Object key) {
+        Item item = items_.get(key);
+        if (null == item || item.expired(System.currentTimeMillis())) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return item;
+    }
+
+    // must be called with the read lock held
+    private void read(Item item, byte[] ba) {
+        ByteBuffer buf = slabs_.get(item.slab).duplicate();
+        buf.position(item.offset);
+        buf.get(ba, 0, item.length);
+    }
+
+    private static byte[] buffer(int length) {
+        if (length > MAX_SCRATCH_SIZE) {
+            return new byte[length];
+        }
+        byte[] ba = scratch.get();
+        if (ba.length < length) {
+            ba = new byte[Math.min(MAX_SCRATCH_SIZE, Math.max(length, ba.length * 2))];
+            scratch.set(ba);
+        }
+        return ba;
+    }
+
+    /*
+     * Move the item to the most recently used end of its size class. The access
+     * is recorded only if the write lock is free so that lookups never wait
+     */
+    private void touch(Item item) {
+        ReentrantReadWriteLock.WriteLock wl = lock_.writeLock();
+        if (wl.tryLock()) {
+            try {
+                if (items_.get(item.key) == item) {
+                    classes[item.sizeClass].unlink(item);
+                    link(item);
+                }
+            } finally {
+                wl.unlock();
+            }
+        }
+    }
+
+    private int sizeClass(int length) {
+        if (length > slabSize) {
+            return -1;
+        }
+        int lo = 0, hi = classes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (classes[mid].chunkSize < length) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // must be called with the write lock held
+    private void link(Item item) {
+        item.accessSeq = ++seq_;
+        classes[item.sizeClass].linkLast(item);
+    }
+
+    // must be called with the write lock held
+    private long allocate(int sizeClass) {
+        SizeClass sc = classes[sizeClass];
+        if (0 == sc.freeCount && !assignSlab(sc) && !reclaim(sc)) {
+            return -1;
+        }
+        long chunk = sc.freeChunks[--sc.freeCount];
+        slabUsed_[(int) (chunk >>> 32)]++;
+        return chunk;
+    }
+
+    /*
+     * Free a chunk for the size class when the byte budget is used up. Must be
+     * called with the write lock held
+     */
+    private boolean reclaim(SizeClass sc) {
+        // reclaim expired items first
+        long now = System.currentTimeMillis();
+        Item item = sc.head;
+        while (null != item && !item.expired(now)) {
+            item = item.next;
+        }
+        if (null != item) {
+            expirationCount.incrementAndGet();
+            remove(item);
+            return true;
+        }
+        // then move a slab from another class, so that the budget taken by some
+        // classes is not kept from the others forever
+        if (moveSlab(sc)) {
+            return true;
+        }
+        item = sc.head;
+        if (null == item) {
+            return false;
+        }
+        evictionCount.incrementAndGet();
+        if (logger.isTraceEnabled()) {
+            logger.trace("evict %s", item.key);
+        }
+        remove(item);
+        return true;
+    }
+
+    /*
+     * Move an empty slab of another class to the size class, or the slab holding
+     * the least recently used item of the other classes if that item is older than
+     * the least recently used item of the size class. Must be called with the write
+     * lock held
+     */
+    private boolean moveSlab(SizeClass sc) {
+        int slab = -1;
+        for (int i = 0, n = slabs_.size(); i < n; ++i) {
+            if (0 == slabUsed_[i] && slabClass_[i] != sc.index) {
+                slab = i;
+                break;
+            }
+        }
+        if (slab < 0) {
+            Item oldest = null;
+            for (SizeClass c : classes) {
+                Item head = c.head;
+                if (c != sc && null != head && (null == oldest || head.accessSeq < oldest.accessSeq)) {
+                    oldest = head;
+                }
+            }
+            if (null == oldest || (null != sc.head && sc.head.accessSeq < oldest.accessSeq)) {
+                return false;
+            }
+            slab = oldest.slab;
+        }
+        SizeClass owner = classes[slabClass_[slab]];
+        Item item = owner.head;
+        while (null != item) {
+            Item next = item.next;
+            if (item.slab == slab) {
+                evictionCount.incrementAndGet();
+                remove(item);
+            }
+            item = next;
+        }
+        owner.dropSlab(slab);
+        if (logger.isTraceEnabled()) {
+            logger.trace("move slab %s from size class %s to %s", slab, owner.chunkSize, sc.chunkSize);
+        }
+        carve(sc, slab);
+        return true;
+    }
+
+    // must be called with the write lock held
+    private boolean assignSlab(SizeClass sc) {
+        Integer slab = freeSlabs_.poll();
+        if (null == slab) {
+            if (slabs_.size() >= maxSlabs) {
+                return false;
+            }
+            slab = slabs_.size();
+            slabs_.add(ByteBuffer.allocateDirect(slabSize));
+        }
+        carve(sc, slab);
+        return true;
+    }
+
+    // must be called with the write lock held
+    private void carve(SizeClass sc, int slab) {
+        slabClass_[slab] = sc.index;
+        slabUsed_[slab] = 0;
+        int chunks = slabSize / sc.chunkSize;
+        // push in reverse order so that chunks are used from the beginning of the slab
+        for (int i = chunks - 1; i >= 0; --i) {
+            sc.free(slab, i * sc.chunkSize);
+        }
+    }
+
+    // must be called with the write lock held
+    private void remove(Item item) {
+        items_.remove(item.key);
+        release(item);
+    }
+
+    // must be called with the write lock held
+    private void release(Item item) {
+        SizeClass sc = classes[item.sizeClass];
+        sc.unlink(item);
+        sc.free(item.slab, item.offset);
+        slabUsed_[item.slab]--;
+        if (NEVER != item.expireAt) {
+            expireSet_.remove(item);
+        }
+    }
+
+    private static byte[] serialize(Serializable value) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(value);
+            oos.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new FastRuntimeException("Error serializing cache item: " + e.getMessage());
+        }
+    }
+
+    private static Serializable deserialize(byte[] ba) {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(ba));
+            return (Serializable) ois.readObject();
+        } catch (Exception e) {
+            throw new FastRuntimeException("Error deserializing cache item: " + e.getMessage());
+        }
+    }
+}
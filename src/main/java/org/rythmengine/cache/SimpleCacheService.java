@@ -5,25 +5,38 @@
  */
 package org.rythmengine.cache;
 
-import org.rythmengine.extension.ICacheService;
+import org.rythmengine.extension.ICompositeKeyCacheService;
 import org.rythmengine.internal.RythmThreadFactory;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
-import org.rythmengine.utils.HashCode;
-import org.rythmengine.utils.S;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A simple cache service implementation
+ * A simple in-process cache service implementation.
+ * <p/>
+ * <p>Items are kept in a concurrent hash map so that lookups never block. The
+ * number of items is bounded by {@link #setMaxEntries(int) max entries}, least
+ * recently used items are evicted when the bound is reached. Expiring items are
+ * also kept in a set ordered by their absolute expire time, which is swept by
+ * a timer thread. Lookups check the expire time of the item so an expired item
+ * is never returned even if it has not been swept yet</p>
  */
-public class SimpleCacheService implements ICacheService {
+public class SimpleCacheService extends CacheServiceBase implements ICompositeKeyCacheService {
 
     private static final ILogger logger = Logger.get(SimpleCacheService.class);
 
-    public static final SimpleCacheService INSTANCE = new SimpleCacheService();
+    /**
+     * The default max number of items stored in the cache
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
 
     private static class TimerThreadFactory extends RythmThreadFactory {
         private TimerThreadFactory() {
@@ -37,69 +50,112 @@ public class SimpleCacheService implements ICacheService {
         startup();
     }
 
-    private static class Item implements Comparable<Item> {
-        String key;
-        Serializable value;
-        long ts;
-        int ttl;
+    /*
+     * Construct a cache service with its own sweeping timer, e.g. the near
+     * tier of a {@link TwoTierCacheService}
+     */
+    SimpleCacheService(int maxEntries) {
+        setMaxEntries(maxEntries);
+        startup();
+    }
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final AtomicLong seq_ = new AtomicLong();
 
-        Item(String key, Serializable value, int ttl) {
+    /*
+     * An item is replaced by a new item when the key is put again, so
+     * the fields used to order items in the expire set never change
+     */
+    private static class Item {
+        final Object key;
+        final Serializable value;
+        final long expireAt;
+        final long seq;
+        // access order links, guarded by lock_
+        Item prev;
+        Item next;
+
+        Item(Object key, Serializable value, long expireAt) {
             this.key = key;
             this.value = value;
-            this.ttl = ttl;
-            this.ts = System.currentTimeMillis();
+            this.expireAt = expireAt;
+            this.seq = seq_.incrementAndGet();
         }
 
-        @Override
-        public int hashCode() {
-            return HashCode.hc(ttl, key, value);
+        boolean expired(long now) {
+            return expireAt <= now;
         }
+    }
 
+    private static final Comparator<Item> EXPIRE_ORDER = new Comparator<Item>() {
         @Override
-        public boolean equals(Object obj) {
-            if (obj == this) return true;
-            if (obj instanceof Item) {
-                Item that = (Item) obj;
-                if (that.ttl != this.ttl) return false;
-                String thisKey = this.key, thatKey = that.key;
-                if (!S.isEqual(thisKey, thatKey)) return false;
-                Object thatVal = that.value, thisVal = this.value;
-                if (null == thatVal && null == thisVal) return true;
-                return (null != thisVal) ? thisVal.equals(thatVal) : thatVal.equals(thisVal);
+        public int compare(Item o1, Item o2) {
+            if (o1.expireAt != o2.expireAt) {
+                return o1.expireAt < o2.expireAt ? -1 : 1;
             }
-            return false;
+            return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
         }
+    };
 
-        @Override
-        public int compareTo(Item that) {
-            return ttl - that.ttl;
-        }
-    }
+    // must be created after the static fields used by the instance
+    public static final SimpleCacheService INSTANCE = new SimpleCacheService();
+
+    private final ConcurrentHashMap<Object, Item> cache_ = new ConcurrentHashMap<Object, Item>();
+
+    // guards the access order list and the expire set
+    private final ReentrantLock lock_ = new ReentrantLock();
+    // the access order list head is the least recently used item
+    private Item head_;
+    private Item tail_;
+    private final TreeSet<Item> expireSet_ = new TreeSet<Item>(EXPIRE_ORDER);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
 
-    private ConcurrentHashMap<String, Item> cache_ = new ConcurrentHashMap<String, Item>();
-    private Queue<Item> items_ = new PriorityQueue<Item>();
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
 
     @Override
     public void put(String key, Serializable value, int ttl) {
+        put0(key, value, ttl);
+    }
+
+    @Override
+    public void put(CompositeKey key, Serializable value, int ttl) {
+        put0(key, value, ttl);
+    }
+
+    private void put0(Object key, Serializable value, int ttl) {
         if (null == key) throw new NullPointerException();
-        if (0 >= ttl) {
+        if (0 == ttl) {
             ttl = defaultTTL;
         }
-        Item item = cache_.get(key);
-        if (null == item) {
-            Item newItem = new Item(key, value, ttl);
-            item = cache_.putIfAbsent(key, newItem);
-            if (null != item) {
-                item.value = value;
-                item.ttl = ttl;
-            } else {
-                if (!items_.offer(newItem)) {
-                    throw new RuntimeException("oops, something is wrong");
-                };
+        long expireAt = ttl < 0 ? NEVER : System.currentTimeMillis() + ttl * 1000L;
+        Item item = new Item(key, value, expireAt);
+        lock_.lock();
+        try {
+            Item old = cache_.put(key, item);
+            if (null != old) {
+                detach(old);
             }
-        } else {
-            item.value = value;
-            item.ttl = ttl;
+            linkLast(item);
+            if (NEVER != expireAt) {
+                expireSet_.add(item);
+            }
+            int max = maxEntries;
+            while (max > 0 && cache_.size() > max && null != head_) {
+                Item eldest = head_;
+                cache_.remove(eldest.key, eldest);
+                detach(eldest);
+                evictionCount.incrementAndGet();
+                if (logger.isTraceEnabled()) {
+                    logger.trace("evict %s", eldest.key);
+                }
+            }
+        } finally {
+            lock_.unlock();
         }
     }
 
@@ -110,30 +166,87 @@ public class SimpleCacheService implements ICacheService {
 
     @Override
     public Serializable remove(String key) {
-        Item item = cache_.remove(key);
-        return null == item ? null : item.value;
+        Item item = removeItem(key);
+        return null == item || item.expired(System.currentTimeMillis()) ? null : item.value;
     }
 
     @Override
     public void evict(String key) {
-        cache_.remove(key);
+        removeItem(key);
+    }
+
+    @Override
+    public void evict(CompositeKey key) {
+        removeItem(key);
+    }
+
+    private Item removeItem(Object key) {
+        lock_.lock();
+        try {
+            Item item = cache_.remove(key);
+            if (null != item) {
+                detach(item);
+            }
+            return item;
+        } finally {
+            lock_.unlock();
+        }
     }
 
     @Override
     public void clear() {
-        cache_.clear();
-        items_.clear();
+        lock_.lock();
+        try {
+            cache_.clear();
+            expireSet_.clear();
+            head_ = null;
+            tail_ = null;
+        } finally {
+            lock_.unlock();
+        }
     }
     
     @Override
     public Serializable get(String key) {
+        return get0(key);
+    }
+
+    @Override
+    public Serializable get(CompositeKey key) {
+        return get0(key);
+    }
+
+    @Override
+    public boolean writeTo(CompositeKey key, OutputStream os, Charset charset) throws IOException {
+        return write(encode(get0(key), charset), os);
+    }
+
+    private Serializable get0(Object key) {
         Item item = cache_.get(key);
-        return null == item ? null : item.value;
+        if (null == item || item.expired(System.currentTimeMillis())) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        // record the access only when the lock is free, so that
+        // lookups never wait for each other
+        if (lock_.tryLock()) {
+            try {
+                if (cache_.get(key) == item) {
+                    unlink(item);
+                    linkLast(item);
+                }
+            } finally {
+                lock_.unlock();
+            }
+        }
+        return item.value;
     }
 
     @Override
     public boolean contains(String key) {
-        return cache_.containsKey(key);
+        Item item = cache_.get(key);
+        return null != item && !item.expired(System.currentTimeMillis());
     }
 
     private int defaultTTL = 60;
@@ -144,6 +257,90 @@ public class SimpleCacheService implements ICacheService {
         this.defaultTTL = ttl;
     }
 
+    /**
+     * Set the max number of items could be stored in the cache. Least
+     * recently used items are evicted when the number is reached
+     *
+     * @param maxEntries the max number of items, or non-positive number for no bound
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Return the number of items in the cache, including expired items not swept yet
+     */
+    public int size() {
+        return cache_.size();
+    }
+
+    /**
+     * Return a snapshot of the cache statistics
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.get(), missCount.get(), evictionCount.get(), expirationCount.get(), cache_.size());
+    }
+
+    // must be called with lock_ held
+    private void detach(Item item) {
+        unlink(item);
+        if (NEVER != item.expireAt) {
+            expireSet_.remove(item);
+        }
+    }
+
+    // must be called with lock_ held
+    private void linkLast(Item item) {
+        item.prev = tail_;
+        item.next = null;
+        if (null == tail_) {
+            head_ = item;
+        } else {
+            tail_.next = item;
+        }
+        tail_ = item;
+    }
+
+    // must be called with lock_ held
+    private void unlink(Item item) {
+        Item prev = item.prev, next = item.next;
+        if (null == prev) {
+            if (head_ == item) head_ = next;
+        } else {
+            prev.next = next;
+        }
+        if (null == next) {
+            if (tail_ == item) tail_ = prev;
+        } else {
+            next.prev = prev;
+        }
+        item.prev = null;
+        item.next = null;
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        lock_.lock();
+        try {
+            while (!expireSet_.isEmpty()) {
+                Item item = expireSet_.first();
+                if (!item.expired(now)) {
+                    break;
+                }
+                expireSet_.pollFirst();
+                unlink(item);
+                if (cache_.remove(item.key, item)) {
+                    expirationCount.incrementAndGet();
+                }
+                if (logger.isTraceEnabled()) {
+                    logger.trace("- %s at %s", item.key, item.expireAt);
+                }
+            }
+        } finally {
+            lock_.unlock();
+        }
+    }
+
     @Override
     public void shutdown() {
         clear();
@@ -160,33 +357,7 @@ public class SimpleCacheService implements ICacheService {
             scheduler.scheduleAtFixedRate(new Runnable() {
                 @Override
                 public void run() {
-                    if (items_.isEmpty()) {
-                        return;
-                    }
-                    long now = System.currentTimeMillis();
-                    if (logger.isTraceEnabled()) {
-                        logger.trace(">>>>now:%s", now);
-                    }
-                    while(true) {
-                        Item item = items_.peek();
-                        if (null == item) {
-                            break;
-                        }
-                        long ts = item.ts + ((long)item.ttl) * 1000;
-                        if ((ts) < now + 50) {
-                            items_.poll();
-                            cache_.remove(item.key);
-                            if (Logger.isTraceEnabled()) {
-                                logger.trace("- %s at %s", item.key, ts);
-                            }
-                            continue;
-                        } else {
-                            if (Logger.isTraceEnabled()) {
-                                logger.trace(">>>>ts:  %s", ts);
-                            }
-                        }
-                        break;
-                    }
+                    sweep();
                 }
             }, 0, 100, TimeUnit.MILLISECONDS);
         }
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.rythmengine.extension.IBulkCacheService;
+import org.rythmengine.extension.ICacheService;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache service keeps hot items in a small in process near cache in front of
+ * a shared far cache, e.g. a {@link MemcachedCacheService}, so that a fragment
+ * rendered by one node is reused by all nodes sharing the far cache, while the
+ * most frequently used fragments are served without a round trip.
+ * <p/>
+ * <p>Items are stored in the far cache along with their expire time. An item
+ * fetched from the far cache is promoted to the near cache once it has been
+ * fetched a number of times. Items stay in the near cache for at most the near
+ * ttl, so a change made by another node is seen by this node after the near ttl
+ * at the latest</p>
+ * <p/>
+ * <p>{@link #getAll(java.util.Collection)} fetches the items not found in the
+ * near cache from the far cache in one batch</p>
+ */
+public class TwoTierCacheService extends CacheServiceBase {
+
+    /**
+     * The default max number of items in the near cache
+     */
+    public static final int DEFAULT_NEAR_MAX_ENTRIES = 1000;
+
+    /**
+     * The default time to live in seconds of the items in the near cache
+     */
+    public static final int DEFAULT_NEAR_TTL = 5;
+
+    /**
+     * The default number of times an item is fetched from the far cache before
+     * it is promoted to the near cache
+     */
+    public static final int DEFAULT_PROMOTE_THRESHOLD = 2;
+
+    /*
+     * The value stored in the far cache, so that an item promoted to the near
+     * cache does not outlive the item in the far cache
+     */
+    private static final class Stamped implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Serializable value;
+        final long expireAt;
+
+        Stamped(Serializable value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final SimpleCacheService near;
+    private final IBulkCacheService far;
+    private final int nearMaxEntries;
+    private final int nearTTL;
+    private final int promoteThreshold;
+
+    // number of times an item not in the near cache is fetched from the far cache
+    private final ConcurrentHashMap<String, AtomicInteger> farHits = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private int defaultTTL = 60;
+
+    /**
+     * Construct a two tier cache service with memcached servers as the far cache
+     *
+     * @param memcachedServers the server list in the form of <code>host:port host2:port</code>
+     */
+    public TwoTierCacheService(String memcachedServers) {
+        this(new MemcachedCacheService(memcachedServers));
+    }
+
+    /**
+     * Construct a two tier cache service with the default near cache settings
+     *
+     * @param far the far cache service
+     */
+    public TwoTierCacheService(ICacheService far) {
+        this(far, DEFAULT_NEAR_MAX_ENTRIES, DEFAULT_NEAR_TTL, DEFAULT_PROMOTE_THRESHOLD);
+    }
+
+    /**
+     * Construct a two tier cache service
+     *
+     * @param far              the far cache service
+     * @param nearMaxEntries   the max number of items in the near cache
+     * @param nearTTL          the max time to live in seconds of the items in the near cache
+     * @param promoteThreshold the number of times an item is fetched from the far cache
+     *                         before it is promoted to the near cache
+     */
+    public TwoTierCacheService(ICacheService far, int nearMaxEntries, int nearTTL, int promoteThreshold) {
+        if (nearTTL <= 0) throw new IllegalArgumentException("near ttl shall be positive");
+        this.far = CacheServiceAdapter.of(far);
+        this.near = new SimpleCacheService(nearMaxEntries);
+        this.nearMaxEntries = nearMaxEntries;
+        this.nearTTL = nearTTL;
+        this.promoteThreshold = Math.max(1, promoteThreshold);
+    }
+
+    /**
+     * Return the near cache
+     */
+    public SimpleCacheService nearCache() {
+        return near;
+    }
+
+    /**
+     * Return the far cache
+     */
+    public IBulkCacheService farCache() {
+        return far;
+    }
+
+    @Override
+    public void put(String key, Serializable value, int ttl) {
+        if (0 == ttl) {
+            ttl = defaultTTL;
+        }
+        long expireAt = ttl < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + ttl * 1000L;
+        far.put(key, new Stamped(value, expireAt), ttl);
+        if (near.contains(key)) {
+            // keep the hot item in the near cache up to date
+            int nearTTL = nearTTL(expireAt);
+            if (nearTTL > 0) {
+                near.put(key, value, nearTTL);
+            } else {
+                near.evict(key);
+            }
+        }
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        put(key, value, defaultTTL);
+    }
+
+    @Override
+    public Serializable remove(String key) {
+        Serializable value = get(key);
+        evict(key);
+        return value;
+    }
+
+    @Override
+    public void evict(String key) {
+        near.evict(key);
+        farHits.remove(key);
+        far.evict(key);
+    }
+
+    @Override
+    public Serializable get(String key) {
+        Serializable value = near.get(key);
+        if (null == value) {
+            value = farHit(key, far.get(key));
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> result = new HashMap<String, Serializable>();
+        List<String> missing = null;
+        for (String key : keys) {
+            Serializable value = near.get(key);
+            if (null != value) {
+                result.put(key, value);
+            } else {
+                if (null == missing) {
+                    missing = new ArrayList<String>();
+                }
+                missing.add(key);
+            }
+        }
+        if (null != missing) {
+            for (Map.Entry<String, Serializable> entry : far.getAll(missing).entrySet()) {
+                Serializable value = farHit(entry.getKey(), entry.getValue());
+                if (null != value) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return null != get(key);
+    }
+
+    @Override
+    public void clear() {
+        near.clear();
+        farHits.clear();
+        far.clear();
+    }
+
+    @Override
+    public void setDefaultTTL(int ttl) {
+        if (ttl == 0) throw new IllegalArgumentException("time to live value couldn't be zero");
+        this.defaultTTL = ttl;
+        far.setDefaultTTL(ttl);
+    }
+
+    @Override
+    public void shutdown() {
+        near.shutdown();
+        farHits.clear();
+        far.shutdown();
+    }
+
+    @Override
+    public void startup() {
+        near.startup();
+        far.startup();
+    }
+
+    // the ttl of an item in the near cache, or zero if the item has expired
+    private int nearTTL(long expireAt) {
+        long remaining = (expireAt - System.currentTimeMillis()) / 1000;
+        return (int) Math.min(remaining, nearTTL);
+    }
+
+    /*
+     * Count the hit of an item in the far cache and promote it to the near
+     * cache if it is hot. Return the value of the item
+     */
+    private Serializable farHit(String key, Serializable stamped) {
+        if (!(stamped instanceof Stamped)) {
+            return null;
+        }
+        Serializable value = ((Stamped) stamped).value;
+        long expireAt = ((Stamped) stamped).expireAt;
+        if (expireAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        AtomicInteger hits = farHits.get(key);
+        if (null == hits) {
+            if (farHits.size() >= nearMaxEntries * 4) {
+                // forget the items that have not become hot
+                farHits.clear();
+            }
+            AtomicInteger existing = farHits.putIfAbsent(key, hits = new AtomicInteger());
+            if (null != existing) {
+                hits = existing;
+            }
+        }
+        if (hits.incrementAndGet() >= promoteThreshold) {
+            farHits.remove(key);
+            int ttl = nearTTL(expireAt);
+            if (ttl > 0) {
+                near.put(key, value, ttl);
+            }
+        }
+        return value;
+    }
+}
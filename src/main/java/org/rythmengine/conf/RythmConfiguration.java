@@ -307,6 +307,20 @@ public class RythmConfiguration {
         return _naturalTemplateEnabled;
     }
 
+    private Boolean _layoutEarlyFlushEnabled = null;
+
+    /**
+     * Get {@link RythmConfigurationKey#FEATURE_LAYOUT_EARLY_FLUSH_ENABLED} without lookup
+     *
+     * @return true if the output of layout templates shall be flushed early
+     */
+    public boolean layoutEarlyFlushEnabled() {
+        if (null == _layoutEarlyFlushEnabled) {
+            _layoutEarlyFlushEnabled = (Boolean) get(FEATURE_LAYOUT_EARLY_FLUSH_ENABLED);
+        }
+        return _layoutEarlyFlushEnabled;
+    }
+
     private Boolean _debugJavaSourceEnabled = null;
 
     /**
@@ -390,6 +404,20 @@ public class RythmConfiguration {
         return _compactEnabled;
     }
 
+    private Integer _buildSplitThreshold = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CODEGEN_BUILD_SPLIT_THRESHOLD} without look up
+     *
+     * @return the build method split threshold
+     */
+    public int buildSplitThreshold() {
+        if (null == _buildSplitThreshold) {
+            _buildSplitThreshold = get(CODEGEN_BUILD_SPLIT_THRESHOLD);
+        }
+        return _buildSplitThreshold;
+    }
+
     private IDurationParser _durationParser = null;
 
     /**
@@ -404,6 +432,62 @@ public class RythmConfiguration {
         return _durationParser;
     }
 
+    private Boolean _singleFlightEnabled = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_SINGLE_FLIGHT_ENABLED} without lookup
+     *
+     * @return true if single flight cache rendering is enabled
+     */
+    public boolean singleFlightEnabled() {
+        if (null == _singleFlightEnabled) {
+            _singleFlightEnabled = get(CACHE_SINGLE_FLIGHT_ENABLED);
+        }
+        return _singleFlightEnabled;
+    }
+
+    private Integer _singleFlightTimeout = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_SINGLE_FLIGHT_TIMEOUT} without lookup
+     *
+     * @return the single flight timeout in milliseconds
+     */
+    public int singleFlightTimeout() {
+        if (null == _singleFlightTimeout) {
+            _singleFlightTimeout = get(CACHE_SINGLE_FLIGHT_TIMEOUT);
+        }
+        return _singleFlightTimeout;
+    }
+
+    private Integer _staleWhileRevalidate = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_STALE_WHILE_REVALIDATE} without lookup
+     *
+     * @return the time in seconds an expired cache item could be served
+     */
+    public int staleWhileRevalidate() {
+        if (null == _staleWhileRevalidate) {
+            _staleWhileRevalidate = get(CACHE_STALE_WHILE_REVALIDATE);
+        }
+        return _staleWhileRevalidate;
+    }
+
+    private Boolean _cacheMetricsEnabled = null;
+
+    /**
+     * Return {@link RythmConfigurationKey#CACHE_METRICS_ENABLED} without lookup
+     *
+     * @return true if fragment cache metrics are collected
+     */
+    public boolean cacheMetricsEnabled() {
+        if (null == _cacheMetricsEnabled) {
+            _cacheMetricsEnabled = get(CACHE_METRICS_ENABLED);
+        }
+        return _cacheMetricsEnabled;
+    }
+
     private ICodeType _defaultCodeType = null;
 
     /**
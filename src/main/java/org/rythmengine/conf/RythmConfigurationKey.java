@@ -9,6 +9,7 @@ import org.rythmengine.Rythm;
 import org.rythmengine._Rythm;
 import org.rythmengine.cache.CacheServiceFactory;
 import org.rythmengine.cache.NoCacheService;
+import org.rythmengine.cache.SimpleCacheService;
 import org.rythmengine.exception.ConfigurationException;
 import org.rythmengine.extension.ICodeType;
 import org.rythmengine.extension.IDurationParser;
@@ -97,6 +98,53 @@ public enum RythmConfigurationKey {
      */
     CACHE_DURATION_PARSER_IMPL("cache.duration_parser.impl", IDurationParser.DEFAULT_PARSER),
 
+    /**
+     * "cache.max_entries": Set the max number of items stored in the
+     * {@link org.rythmengine.cache.SimpleCacheService simple cache service}. Least recently
+     * used items are evicted when the number is reached. Set to <code>0</code> to turn off
+     * the bound
+     * <p/>
+     * <p>Default value: <code>10000</code></p>
+     */
+    CACHE_MAX_ENTRIES("cache.max_entries", SimpleCacheService.DEFAULT_MAX_ENTRIES),
+
+    /**
+     * "cache.single_flight.enabled": Enable/disable single flight rendering of expired
+     * <code>@cache</code> blocks and cached tag invocations. When enabled only one thread
+     * renders the missing item while other threads wait for it
+     * <p/>
+     * <p>Default value: <code>true</code></p>
+     */
+    CACHE_SINGLE_FLIGHT_ENABLED("cache.single_flight.enabled", true),
+
+    /**
+     * "cache.single_flight.timeout": Set the max time in milliseconds a thread waits for
+     * another thread rendering the same missing cache item. The thread renders the
+     * item itself after the timeout, and a warning is logged
+     * <p/>
+     * <p>Default value: <code>10000</code></p>
+     */
+    CACHE_SINGLE_FLIGHT_TIMEOUT("cache.single_flight.timeout", 10000),
+
+    /**
+     * "cache.stale_while_revalidate": Set the time in seconds an expired <code>@cache</code>
+     * block or cached tag invocation could still be served while one thread is rendering it
+     * again. Set to <code>0</code> to turn off serving stale items
+     * <p/>
+     * <p>Default value: <code>0</code></p>
+     */
+    CACHE_STALE_WHILE_REVALIDATE("cache.stale_while_revalidate", 0),
+
+    /**
+     * "cache.metrics.enabled": Enable/disable collecting the hits, misses and render time
+     * of each <code>@cache</code> block and cached tag invocation. When enabled the metrics
+     * are available via {@link org.rythmengine.RythmEngine#fragmentCacheMetrics()} and
+     * registered as a JMX MBean
+     * <p/>
+     * <p>Default value: <code>false</code></p>
+     */
+    CACHE_METRICS_ENABLED("cache.metrics.enabled", false),
+
     /**
      * "cache.prod_only.enabled": Turn on/off cache at
      * {@link org.rythmengine.Rythm.Mode#dev dev} mode. When
@@ -113,6 +161,19 @@ public enum RythmConfigurationKey {
      */
     CODEGEN_COMPACT_ENABLED("codegen.compact.enabled", true),
 
+    /**
+     * "codegen.build_split.threshold": Set the approximate size (in characters of generated
+     * java code, string literals excluded) after which the template body is split out from
+     * the <code>build()</code> method into several private methods. This keeps the build
+     * method small enough to be JIT compiled and prevents "code too large" compilation
+     * error on big templates. Local variables declared at the top level of the template
+     * are turned into fields of the template. Set to <code>0</code> to disable the splitting,
+     * e.g. <code>4000</code> to enable it
+     * <p/>
+     * <p>Default value: <code>0</code></p>
+     */
+    CODEGEN_BUILD_SPLIT_THRESHOLD("codegen.build_split.threshold", 0),
+
     /**
      * "codegen.source_code_enhancer.impl": Set template
      * {@link org.rythmengine.extension.ISourceCodeEnhancer source code enhancer}
@@ -307,6 +368,20 @@ public enum RythmConfigurationKey {
      * <p>Default value: <code>true</code></p>
      */
     FEATURE_NATURAL_TEMPLATE_ENABLED("feature.natural_template.enabled", false),
+
+    /**
+     * "feature.layout_early_flush.enabled": When a template extending a layout template is rendered
+     * to a writer or output stream, render the layout template first, so the output before the first
+     * reference to the content, a section or a render property of the extending template is flushed
+     * to the writer or output stream before the extending template is rendered.
+     * <p/>
+     * <p>Render args of the extending template are passed to the layout template before rendering.
+     * Render args and properties set by the extending template are visible to the layout template
+     * only after its content or a section is referenced</p>
+     * <p/>
+     * <p>Default value: <code>false</code></p>
+     */
+    FEATURE_LAYOUT_EARLY_FLUSH_ENABLED("feature.layout_early_flush.enabled", false),
     
 
     /**
@@ -1010,7 +1085,7 @@ public enum RythmConfigurationKey {
         if (key.endsWith(".dir")) {
             return (T) getUri(key, configuration, defVal);
         }
-        if (key.endsWith(".timeout") || key.endsWith(".interval") || key.endsWith(".size")) {
+        if (key.endsWith(".timeout") || key.endsWith(".interval") || key.endsWith(".size") || defVal instanceof Integer) {
             return (T) getInt(key, configuration, defVal);
         }
         return (T) getValFromAliases(configuration, key, null, defVal);
@@ -7,6 +7,7 @@ package org.rythmengine.exception;
 
 import org.rythmengine.RythmEngine;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.compiler.LineNumberTable;
 import org.rythmengine.internal.compiler.TemplateClass;
 import org.rythmengine.utils.F;
 import org.rythmengine.utils.S;
@@ -138,6 +139,10 @@ public class RythmException extends FastRuntimeException {
 
     private static int resolveTemplateLineNumber(int javaLineNumber, int templateLineNumber, String javaSource, TemplateClass templateClass) {
         if (javaLineNumber != -1 && templateLineNumber == -1) {
+            LineNumberTable lineNumberTable = null == templateClass ? null : templateClass.getLineNumberTable();
+            if (null != lineNumberTable) {
+                return lineNumberTable.templateLine(javaLineNumber);
+            }
             String[] lines = getJavaSource(javaSource, templateClass).split("(\\r\\n|\\n\\r|\\n|\\r)");
             if (javaLineNumber < lines.length) {
                 String errorLine = lines[javaLineNumber - 1];
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.extension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * A cache service supports bulk, asynchronous and byte oriented operations, so
+ * that a remote cache service could serve many items in one round trip.
+ * <p/>
+ * <p>Implementations could extend {@link org.rythmengine.cache.CacheServiceBase}, which
+ * implements the operations of this interface with the single item operations
+ * of {@link ICacheService}. Any other {@link ICacheService} could be adapted with
+ * {@link org.rythmengine.cache.CacheServiceAdapter#of(ICacheService)}</p>
+ */
+public interface IBulkCacheService extends ICacheService {
+
+    /**
+     * Load the value of an item not found in the cache
+     */
+    public static interface Loader {
+        /**
+         * Return the value of the key
+         *
+         * @param key
+         * @return the value, or <code>null</code> if the item shall not be cached
+         */
+        Serializable load(String key);
+    }
+
+    /**
+     * Return items from the cache service by keys
+     *
+     * @param keys
+     * @return a map contains the items found, items not found or expired are not included
+     */
+    Map<String, Serializable> getAll(Collection<String> keys);
+
+    /**
+     * Store items into the cache service and set ttl value
+     *
+     * @param items
+     * @param ttl   time to live of the cached items. See {@link #put(String, java.io.Serializable, int)}
+     */
+    void putAll(Map<String, ? extends Serializable> items, int ttl);
+
+    /**
+     * Return an item from the cache service by key. If the item is not found then
+     * load it with the loader and store it into the cache service. The loader shall
+     * be called only once for concurrent requests of the same key in this process
+     *
+     * @param key
+     * @param loader
+     * @param ttl    time to live of the loaded item. See {@link #put(String, java.io.Serializable, int)}
+     * @return the cached or loaded value
+     */
+    Serializable computeIfAbsent(String key, Loader loader, int ttl);
+
+    /**
+     * Return an item from the cache service by key without waiting for the
+     * cache service
+     *
+     * @param key
+     * @return the future of the value associated with the key
+     */
+    Future<Serializable> getAsync(String key);
+
+    /**
+     * Store encoded text into the cache service by key and set ttl value
+     *
+     * @param key
+     * @param value   the encoded text
+     * @param charset the charset used to encode the text
+     * @param ttl     time to live of the cached item. See {@link #put(String, java.io.Serializable, int)}
+     */
+    void putBytes(String key, byte[] value, Charset charset, int ttl);
+
+    /**
+     * Return an item from the cache service by key encoded with the charset. Items
+     * stored by {@link #putBytes(String, byte[], java.nio.charset.Charset, int)} with the
+     * same charset are returned without decoding, other items are encoded from their
+     * String form
+     *
+     * @param key
+     * @param charset
+     * @return the encoded item or <code>null</code> if the item is not found
+     */
+    byte[] getBytes(String key, Charset charset);
+
+    /**
+     * Write an item found by key to the output stream encoded with the charset. Cache
+     * services storing encoded text could write the bytes without decoding them
+     *
+     * @param key
+     * @param os      the output stream
+     * @param charset the charset of the output stream
+     * @return <code>true</code> if the item is found and written to the stream
+     * @throws IOException
+     */
+    boolean writeTo(String key, OutputStream os, Charset charset) throws IOException;
+}
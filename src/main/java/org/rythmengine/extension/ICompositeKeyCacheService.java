@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.extension;
+
+import org.rythmengine.cache.CompositeKey;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+
+/**
+ * A cache service that accepts {@link CompositeKey composite keys} directly.
+ * <p/>
+ * <p>In process cache services shall implement this interface to avoid building
+ * String keys for <code>@cache</code> blocks and cached tag invocations. For other
+ * cache services the String form of the composite key is used</p>
+ */
+public interface ICompositeKeyCacheService extends ICacheService {
+
+    /**
+     * Store an item into the cache service by composite key and set ttl value
+     *
+     * @param key
+     * @param value
+     * @param ttl   time to live of the cached item. See {@link #put(String, java.io.Serializable, int)}
+     */
+    void put(CompositeKey key, Serializable value, int ttl);
+
+    /**
+     * Return an item from the cache service by composite key
+     *
+     * @param key
+     * @return the value associated with the key
+     */
+    Serializable get(CompositeKey key);
+
+    /**
+     * Remove an item from the cache service by composite key
+     *
+     * @param key
+     */
+    void evict(CompositeKey key);
+
+    /**
+     * Write an item found by composite key to the output stream encoded with the charset
+     *
+     * @param key
+     * @param os      the output stream
+     * @param charset the charset of the output stream
+     * @return <code>true</code> if the item is found and written to the stream
+     * @throws IOException
+     */
+    boolean writeTo(CompositeKey key, OutputStream os, Charset charset) throws IOException;
+}
@@ -11,14 +11,34 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by luog on 2/01/14.
  */
 public class JodaDateTimeFormatter implements IFormatter {
+
+    // joda formatters are immutable and thread safe, thus shared by all threads
+    private static final int MAX_FORMATTERS = 512;
+    private final ConcurrentMap<String, DateTimeFormatter> formatters = new ConcurrentHashMap<String, DateTimeFormatter>();
+
     @Override
     public String format(Object val, String pattern, Locale locale, String timezone) {
         if (!(val instanceof DateTime)) return null;
+        String key = pattern + "|" + locale + "|" + timezone;
+        DateTimeFormatter fmt = formatters.get(key);
+        if (null == fmt) {
+            fmt = formatter(pattern, locale, timezone);
+            if (formatters.size() >= MAX_FORMATTERS) {
+                formatters.clear();
+            }
+            formatters.put(key, fmt);
+        }
+        return fmt.print((DateTime)val);
+    }
+
+    private static DateTimeFormatter formatter(String pattern, Locale locale, String timezone) {
         DateTimeFormatter fmt;
         if (null != pattern) fmt = DateTimeFormat.forPattern(pattern);
         else fmt = DateTimeFormat.fullDateTime();
@@ -28,6 +48,6 @@ public class JodaDateTimeFormatter implements IFormatter {
             DateTimeZone dtz = DateTimeZone.forID(timezone);
             fmt = fmt.withZone(dtz);
         }
-        return fmt.print((DateTime)val);
+        return fmt;
     }
 }
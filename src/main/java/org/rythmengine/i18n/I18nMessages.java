@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.i18n;
+
+import org.rythmengine.RythmEngine;
+import org.rythmengine.conf.RythmConfiguration;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.utils.I18N;
+import org.rythmengine.utils.S;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache the i18n messages resolved from the
+ * {@link org.rythmengine.conf.RythmConfigurationKey#I18N_MESSAGE_SOURCES message sources}
+ * by locale and key. A message is looked up in the message sources only once, and the
+ * <code>MessageFormat</code> of the message is compiled only once
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class I18nMessages {
+
+    /**
+     * A message resolved from the message sources
+     */
+    public static final class Message {
+        private final I18nMessages messages;
+        private final String key;
+        private final Locale locale;
+        private final String pattern;
+        private volatile MessageFormat format;
+
+        private Message(I18nMessages messages, String key, Locale locale, String pattern) {
+            this.messages = messages;
+            this.key = key;
+            this.locale = locale;
+            this.pattern = pattern;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public Locale locale() {
+            return locale;
+        }
+
+        /**
+         * Return the message, or the key if the message is not found in any message source
+         */
+        public String pattern() {
+            return pattern;
+        }
+
+        I18nMessages messages() {
+            return messages;
+        }
+
+        /**
+         * Format the message with the arguments. String arguments are resolved as
+         * i18n messages themselves
+         *
+         * @param template the template being rendered, could be <code>null</code>
+         * @param args     the format arguments
+         * @return the formatted message, or the message itself if there is no argument
+         */
+        public String format(ITemplate template, Object... args) {
+            int len = args.length;
+            if (0 == len) {
+                return pattern;
+            }
+            Object[] resolved = new Object[len];
+            for (int i = 0; i < len; ++i) {
+                Object arg = args[i];
+                resolved[i] = arg instanceof String ? S.i18n(template, arg) : arg;
+            }
+            MessageFormat fmt = format;
+            if (null == fmt) {
+                fmt = new MessageFormat(pattern, locale);
+                format = fmt;
+            }
+            // MessageFormat is not thread safe, format with a copy of the compiled one
+            return ((MessageFormat) fmt.clone()).format(resolved);
+        }
+    }
+
+    private static final I18nMessages DEFAULT = new I18nMessages(RythmConfiguration.EMPTY_CONF.messageSources());
+
+    private final List<String> messageSources;
+
+    // messages resolved beyond this number in a locale are not kept, so that keys
+    // built at runtime won't make the cache grow without limit. Literal keys are
+    // kept by their MessageHandle anyway
+    static final int MAX_MESSAGES = 2048;
+
+    private final ConcurrentHashMap<Locale, ConcurrentHashMap<String, Message>> messages = new ConcurrentHashMap<Locale, ConcurrentHashMap<String, Message>>();
+
+    public I18nMessages(List<String> messageSources) {
+        this.messageSources = messageSources;
+    }
+
+    /**
+     * Return the messages of the engine of the template, or the current engine
+     * if the template is <code>null</code>
+     *
+     * @param template
+     * @return the messages
+     */
+    public static I18nMessages of(ITemplate template) {
+        RythmEngine engine = null == template ? RythmEngine.get() : template.__engine();
+        return null == engine ? DEFAULT : engine.i18nMessages();
+    }
+
+    /**
+     * Return the message of the key in the locale
+     *
+     * @param key
+     * @param locale if <code>null</code> then the default {@link RythmConfigurationKey#I18N_LOCALE locale} is used
+     * @return the message
+     */
+    public Message message(String key, Locale locale) {
+        if (null == locale) {
+            locale = RythmConfigurationKey.I18N_LOCALE.getDefaultConfiguration();
+        }
+        ConcurrentHashMap<String, Message> m = messages.get(locale);
+        if (null == m) {
+            m = new ConcurrentHashMap<String, Message>();
+            ConcurrentHashMap<String, Message> m0 = messages.putIfAbsent(locale, m);
+            if (null != m0) {
+                m = m0;
+            }
+        }
+        Message msg = m.get(key);
+        if (null == msg) {
+            msg = new Message(this, key, locale, resolve(key, locale));
+            if (m.size() >= MAX_MESSAGES) {
+                return msg;
+            }
+            Message msg0 = m.putIfAbsent(key, msg);
+            if (null != msg0) {
+                msg = msg0;
+            }
+        }
+        return msg;
+    }
+
+    private String resolve(String key, Locale locale) {
+        for (String msgSrc : messageSources) {
+            ResourceBundle bundle = I18N.bundle(null, msgSrc, locale);
+            if (null != bundle && bundle.containsKey(key)) {
+                return bundle.getString(key);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Clear the resolved messages. Called when the engine restarts, reloads
+     * template classes or shuts down
+     */
+    public void clear() {
+        messages.clear();
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.i18n;
+
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.utils.I18N;
+
+import java.util.Locale;
+
+/**
+ * A handle to the i18n message of a literal key. The code generated for
+ * <code>@i18n("key", ...)</code> keeps the handle in a static field, so the
+ * message last resolved is used directly as long as the locale does not change
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public final class MessageHandle {
+
+    private final String key;
+    private volatile I18nMessages.Message last;
+
+    public MessageHandle(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Return the message formatted with the arguments
+     *
+     * @param template the template being rendered
+     * @param args     the format arguments. If the first argument is of type Locale then it will be used to specify
+     *                 the locale of the processing, and the rest elements are used as format arguments
+     * @return the i18n message
+     */
+    public String format(ITemplate template, Object... args) {
+        Locale locale = null;
+        if (args.length > 0 && args[0] instanceof Locale) {
+            locale = (Locale) args[0];
+            Object[] args0 = new Object[args.length - 1];
+            System.arraycopy(args, 1, args0, 0, args0.length);
+            args = args0;
+        }
+        if (null == locale) {
+            locale = I18N.locale(template);
+        }
+        I18nMessages messages = I18nMessages.of(template);
+        I18nMessages.Message msg = last;
+        if (null == msg || msg.messages() != messages || !msg.locale().equals(locale)) {
+            msg = messages.message(key, locale);
+            last = msg;
+        }
+        return msg.format(template, args);
+    }
+}
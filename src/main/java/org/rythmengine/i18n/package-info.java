@@ -0,0 +1,11 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+/**
+ * Resolved and precompiled i18n messages
+ * <p>
+ * @see org.rythmengine.utils.I18N
+ */
+package org.rythmengine.i18n;
@@ -0,0 +1,412 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+import java.util.*;
+
+/**
+ * Split the generated template body into several private methods so
+ * that the <code>build()</code> method stays under the JIT huge method
+ * limit and the java compiler 64K method size limit.
+ * <p/>
+ * <p>The body is split only at token boundaries where the generated code
+ * is at the top level of the method (not inside any block or parenthesis),
+ * and right after a complete statement. Local variables declared at the top
+ * level are hoisted into private fields so that they are still visible to
+ * the code in the subsequent methods: the <code>final</code> modifier is dropped
+ * and the fields of reference type are cleared after rendering. If anything in
+ * the body could not be safely handled (e.g. annotations, local classes, array
+ * initializers or variables with multiple declarators), the body is kept in one
+ * piece</p>
+ * <p/>
+ * <p>The size of the code is measured in characters of the generated java code,
+ * which is only an approximation of the byte code size</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+class BuildMethodSplitter {
+
+    static final String METHOD_PREFIX = "__build_";
+
+    private static final Set<String> NOT_TYPES = new HashSet<String>(Arrays.asList(
+            "return", "throw", "new", "if", "else", "for", "while", "do", "switch", "case",
+            "default", "try", "catch", "finally", "break", "continue", "synchronized", "assert",
+            "this", "super", "null", "true", "false", "instanceof", "goto", "const"));
+
+    private static final Set<String> LOCAL_TYPE_DECLARATIONS = new HashSet<String>(Arrays.asList(
+            "class", "interface", "enum", "abstract", "static", "strictfp"));
+
+    private static final Set<String> CONTINUATIONS = new HashSet<String>(Arrays.asList(
+            "else", "catch", "finally", "while"));
+
+    private static final Set<String> PRIMITIVES = new HashSet<String>(Arrays.asList(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double"));
+
+    private static final int IDENT = 0;
+    private static final int SYMBOL = 1;
+    private static final int LITERAL = 2;
+
+    private static class Tok {
+        int kind;
+        String text;
+        int start;
+        int end;
+        // brace and parenthesis depth before this token
+        int depth;
+
+        Tok(int kind, String text, int start, int end, int depth) {
+            this.kind = kind;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+
+        boolean is(String s) {
+            return text.equals(s);
+        }
+    }
+
+    private static class Edit {
+        int start;
+        int end;
+        String replacement;
+
+        Edit(int start, int end, String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+
+    private final int threshold;
+    private final Set<String> reserved;
+    private String body;
+
+    private List<String> chunks = new ArrayList<String>();
+    private Map<String, String> fields = new LinkedHashMap<String, String>();
+
+    /**
+     * @param threshold the approximate code size of each method
+     * @param reserved  names that must not be used for hoisted fields, e.g. render args
+     */
+    BuildMethodSplitter(int threshold, Set<String> reserved) {
+        this.threshold = threshold;
+        this.reserved = reserved;
+    }
+
+    /**
+     * Return the method bodies after a successful split
+     */
+    List<String> chunks() {
+        return chunks;
+    }
+
+    /**
+     * Return the hoisted fields: name to type mapping
+     */
+    Map<String, String> fields() {
+        return fields;
+    }
+
+    /**
+     * Return names of the hoisted fields of reference type, which shall be
+     * cleared after rendering so that they do not keep the objects referenced
+     */
+    List<String> referenceFields() {
+        List<String> l = new ArrayList<String>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (!PRIMITIVES.contains(field.getValue())) {
+                l.add(field.getKey());
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Try to split the code generated by the tokens
+     *
+     * @param segments code generated by each token, in order
+     * @return <code>true</code> if the body has been split into more than one method
+     */
+    boolean split(List<String> segments) {
+        if (threshold <= 0 || segments.size() < 2) {
+            return false;
+        }
+        StringBuilder sb = new StringBuilder();
+        int[] boundaries = new int[segments.size()];
+        for (int i = 0; i < segments.size(); ++i) {
+            sb.append(segments.get(i));
+            boundaries[i] = sb.length();
+        }
+        body = sb.toString();
+        List<Tok> toks = tokenize(body);
+        if (null == toks) {
+            return false;
+        }
+        if (cost(toks, 0, toks.size()) <= threshold) {
+            return false;
+        }
+        List<Integer> cuts = findCuts(toks, boundaries);
+        if (cuts.isEmpty()) {
+            return false;
+        }
+        List<Edit> edits = hoist(toks);
+        if (null == edits) {
+            return false;
+        }
+        int chunkStart = 0, edit = 0;
+        cuts.add(body.length());
+        for (int cut : cuts) {
+            StringBuilder chunk = new StringBuilder();
+            int pos = chunkStart;
+            while (edit < edits.size() && edits.get(edit).start < cut) {
+                Edit e = edits.get(edit++);
+                chunk.append(body, pos, e.start).append(e.replacement);
+                pos = e.end;
+            }
+            chunk.append(body, pos, cut);
+            chunks.add(chunk.toString());
+            chunkStart = cut;
+        }
+        return true;
+    }
+
+    private List<Integer> findCuts(List<Tok> toks, int[] boundaries) {
+        List<Integer> cuts = new ArrayList<Integer>();
+        int cost = 0, b = 0;
+        for (int i = 0; i < toks.size() - 1; ++i) {
+            Tok tok = toks.get(i);
+            cost += cost(tok);
+            Tok next = toks.get(i + 1);
+            while (b < boundaries.length && boundaries[b] <= tok.start) {
+                b++;
+            }
+            if (cost < threshold || b >= boundaries.length) {
+                continue;
+            }
+            int boundary = boundaries[b];
+            if (boundary < tok.end || boundary > next.start) {
+                continue;
+            }
+            if (next.depth != 0 || !(tok.is(";") || tok.is("}"))) {
+                continue;
+            }
+            if (tok.depth != (tok.is("}") ? 1 : 0)) {
+                continue;
+            }
+            if (next.kind == IDENT ? CONTINUATIONS.contains(next.text) : !(next.is("{") || next.is("("))) {
+                continue;
+            }
+            cuts.add(boundary);
+            cost = 0;
+        }
+        return cuts;
+    }
+
+    /*
+     * Turn all local variable declarations at the method top level into
+     * fields. Return null if the body contains anything we don't know how
+     * to handle
+     */
+    private List<Edit> hoist(List<Tok> toks) {
+        List<Edit> edits = new ArrayList<Edit>();
+        boolean stmtStart = true;
+        for (int i = 0; i < toks.size(); ++i) {
+            Tok tok = toks.get(i);
+            if (tok.depth != 0) {
+                // a block closed back to the top level
+                stmtStart = tok.depth == 1 && tok.is("}");
+                continue;
+            }
+            if (stmtStart) {
+                int r = parseDeclaration(toks, i, edits);
+                if (r < 0) {
+                    return null;
+                }
+                if (r > i) {
+                    i = r;
+                    stmtStart = toks.get(r).is(";");
+                    continue;
+                }
+            }
+            stmtStart = tok.is(";");
+        }
+        return edits;
+    }
+
+    /*
+     * Returns: the index of the declaration ending ";" or "=" token if a declaration
+     * found, -1 if unsupported, or the start index if it is not a declaration
+     */
+    private int parseDeclaration(List<Tok> toks, int start, List<Edit> edits) {
+        int i = start;
+        Tok tok = toks.get(i);
+        if (tok.is("@")) {
+            return -1;
+        }
+        if (tok.kind != IDENT) {
+            return start;
+        }
+        if (LOCAL_TYPE_DECLARATIONS.contains(tok.text)) {
+            return -1;
+        }
+        if (tok.is("final")) {
+            i++;
+            if (i >= toks.size() || LOCAL_TYPE_DECLARATIONS.contains(toks.get(i).text)) {
+                return -1;
+            }
+        }
+        int typeStart = i;
+        // type: Ident(.Ident)*[<...>]([])*
+        if (i >= toks.size() || toks.get(i).kind != IDENT || NOT_TYPES.contains(toks.get(i).text)) {
+            return start;
+        }
+        i++;
+        while (i + 1 < toks.size() && toks.get(i).is(".") && toks.get(i + 1).kind == IDENT) {
+            i += 2;
+        }
+        if (i < toks.size() && toks.get(i).is("<")) {
+            int level = 0;
+            for (; i < toks.size(); ++i) {
+                Tok t = toks.get(i);
+                if (t.is("<")) {
+                    level++;
+                } else if (t.is(">")) {
+                    level--;
+                    if (level == 0) {
+                        break;
+                    }
+                } else if (t.kind == SYMBOL && !t.is(",") && !t.is(".") && !t.is("?") && !t.is("[") && !t.is("]")) {
+                    return start;
+                }
+            }
+            i++;
+        }
+        while (i + 1 < toks.size() && toks.get(i).is("[") && toks.get(i + 1).is("]")) {
+            i += 2;
+        }
+        if (i + 1 >= toks.size()) {
+            return start;
+        }
+        Tok name = toks.get(i);
+        if (name.kind != IDENT || NOT_TYPES.contains(name.text)) {
+            return start;
+        }
+        Tok after = toks.get(i + 1);
+        if (!after.is("=") && !after.is(";")) {
+            // could be "int a[]", "int a, b" or not a declaration at all, e.g. "a b c"
+            return after.is("[") || after.is(",") ? -1 : start;
+        }
+        if (after.is("=") && i + 2 < toks.size() && toks.get(i + 2).is("{")) {
+            // array initializer cannot be turned into an assignment
+            return -1;
+        }
+        if (after.is("=")) {
+            // more declarators follow the initializer, e.g. "int a = 1, b = 2"
+            for (int j = i + 2; j < toks.size(); ++j) {
+                Tok t = toks.get(j);
+                if (t.depth != 0) {
+                    continue;
+                }
+                if (t.is(";")) {
+                    break;
+                }
+                if (t.is(",")) {
+                    return -1;
+                }
+            }
+        }
+        String varName = name.text;
+        if (varName.startsWith("__") || reserved.contains(varName) || fields.containsKey(varName)) {
+            return -1;
+        }
+        fields.put(varName, body.substring(toks.get(typeStart).start, toks.get(i - 1).end));
+        Tok declStart = toks.get(start);
+        if (after.is("=")) {
+            edits.add(new Edit(declStart.start, name.start, ""));
+        } else {
+            edits.add(new Edit(declStart.start, after.end, ""));
+        }
+        return i + 1;
+    }
+
+    private static int cost(List<Tok> toks, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; ++i) {
+            n += cost(toks.get(i));
+        }
+        return n;
+    }
+
+    private static int cost(Tok tok) {
+        // string literals goes to the constant pool, they don't count much in method size
+        return tok.kind == LITERAL && tok.text.startsWith("\"") ? 3 : tok.text.length();
+    }
+
+    /*
+     * A minimal java tokenizer which skips whitespaces and comments and tracks
+     * the nesting depth of braces and parenthesis. Returns null if the code is
+     * not balanced
+     */
+    private static List<Tok> tokenize(String s) {
+        List<Tok> toks = new ArrayList<Tok>();
+        int depth = 0, len = s.length(), i = 0;
+        while (i < len) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < len && s.charAt(i + 1) == '/') {
+                int e = s.indexOf('\n', i);
+                i = e < 0 ? len : e + 1;
+            } else if (c == '/' && i + 1 < len && s.charAt(i + 1) == '*') {
+                int e = s.indexOf("*/", i + 2);
+                if (e < 0) {
+                    return null;
+                }
+                i = e + 2;
+            } else if (c == '"' || c == '\'') {
+                int j = i + 1;
+                while (j < len && s.charAt(j) != c) {
+                    if (s.charAt(j) == '\\') {
+                        j++;
+                    }
+                    j++;
+                }
+                if (j >= len) {
+                    return null;
+                }
+                toks.add(new Tok(LITERAL, s.substring(i, j + 1), i, j + 1, depth));
+                i = j + 1;
+            } else if (Character.isJavaIdentifierStart(c) || Character.isDigit(c)) {
+                int j = i + 1;
+                while (j < len && Character.isJavaIdentifierPart(s.charAt(j))) {
+                    j++;
+                }
+                if (Character.isDigit(c)) {
+                    // number literal, including decimals like 1.5e3
+                    while (j < len && (Character.isJavaIdentifierPart(s.charAt(j)) || s.charAt(j) == '.')) {
+                        j++;
+                    }
+                }
+                toks.add(new Tok(Character.isDigit(c) ? LITERAL : IDENT, s.substring(i, j), i, j, depth));
+                i = j;
+            } else {
+                toks.add(new Tok(SYMBOL, String.valueOf(c), i, i + 1, depth));
+                if (c == '{' || c == '(') {
+                    depth++;
+                } else if (c == '}' || c == ')') {
+                    depth--;
+                    if (depth < 0) {
+                        return null;
+                    }
+                }
+                i++;
+            }
+        }
+        return depth == 0 ? toks : null;
+    }
+}
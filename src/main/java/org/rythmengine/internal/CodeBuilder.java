@@ -191,6 +191,17 @@ public class CodeBuilder extends TextBuilder {
     private Set<InlineClass> inlineClasses = new HashSet<InlineClass>();
     private List<String> staticCodes = new ArrayList<String>();
 
+    // whether the template contains java code blocks, which could read or
+    // rewrite the buffer of the template
+    private boolean scripted = false;
+
+    /**
+     * Mark the template contains java code blocks
+     */
+    public void scripted() {
+        scripted = true;
+    }
+
     public void setInitCode(String code) {
         if (S.empty(initCode)) {
             initCode = code;
@@ -317,11 +328,15 @@ public class CodeBuilder extends TextBuilder {
         this.inlineTagBodies.clear();
         this.importLineMap.clear();
         this.logTime = false;
+        this.memoizeTTL = null;
         this.macros.clear();
         this.macroStack.clear();
         this.buildBody = null;
         this.templateDefLang = null;
         this.staticCodes.clear();
+        this.i18nHandles.clear();
+        this.formatHandles.clear();
+        this.scripted = false;
     }
 
     /**
@@ -343,10 +358,14 @@ public class CodeBuilder extends TextBuilder {
         this.inlineTagBodies.clear();
         this.importLineMap.clear();
         this.logTime = false;
+        this.memoizeTTL = null;
         this.macros.clear();
         this.macroStack.clear();
         this.buildBody = null;
         this.staticCodes.clear();
+        this.i18nHandles.clear();
+        this.formatHandles.clear();
+        this.scripted = false;
     }
 
     public void merge(CodeBuilder codeBuilder) {
@@ -362,8 +381,24 @@ public class CodeBuilder extends TextBuilder {
         this.finalCode = new StringBuilder(S.toString(this.finalCode)).append(S.toString(codeBuilder.finalCode)).toString();
         this.renderArgs.putAll(codeBuilder.renderArgs);
         this.importLineMap.putAll(codeBuilder.importLineMap);
-        this.staticCodes.addAll(codeBuilder.staticCodes);
+        mergeHandles(i18nHandles, codeBuilder.i18nHandles);
+        mergeHandles(formatHandles, codeBuilder.formatHandles);
+        for (String code : codeBuilder.staticCodes) {
+            // the same static handle could be declared by the included template
+            if (!staticCodes.contains(code)) {
+                staticCodes.add(code);
+            }
+        }
         renderArgCounter += codeBuilder.renderArgCounter;
+        scripted = scripted || codeBuilder.scripted;
+    }
+
+    private static void mergeHandles(Map<String, String> handles, Map<String, String> included) {
+        for (Map.Entry<String, String> entry : included.entrySet()) {
+            if (!handles.containsKey(entry.getKey())) {
+                handles.put(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     public CodeBuilder() {
@@ -487,6 +522,49 @@ public class CodeBuilder extends TextBuilder {
         staticCodes.add(codeSnippet);
     }
 
+    // i18n message key literal -> name of the static message handle field
+    private Map<String, String> i18nHandles = new HashMap<String, String>();
+
+    // format pattern literal -> name of the static format handle field
+    private Map<String, String> formatHandles = new HashMap<String, String>();
+
+    /**
+     * Return the name of the static {@link org.rythmengine.i18n.MessageHandle}
+     * field of a literal i18n message key, the field is declared when the key
+     * is first seen
+     *
+     * @param key the java string literal of the key
+     * @return the field name
+     */
+    public String i18nHandle(String key) {
+        return staticHandle(i18nHandles, "__i18n_", "org.rythmengine.i18n.MessageHandle", key);
+    }
+
+    /**
+     * Return the name of the static {@link org.rythmengine.utils.FormatHandle}
+     * field of a literal format pattern, the field is declared when the pattern
+     * is first seen
+     *
+     * @param pattern the java string literal of the pattern
+     * @return the field name
+     */
+    public String formatHandle(String pattern) {
+        return staticHandle(formatHandles, "__fmt_", "org.rythmengine.utils.FormatHandle", pattern);
+    }
+
+    private String staticHandle(Map<String, String> handles, String prefix, String type, String literal) {
+        String name = handles.get(literal);
+        if (null == name) {
+            name = prefix + Integer.toHexString(literal.hashCode());
+            while (handles.containsValue(name)) {
+                name += "_";
+            }
+            handles.put(literal, name);
+            addStaticCode("private static final " + type + " " + name + " = new " + type + "(" + literal + ")");
+        }
+        return name;
+    }
+
     public InlineClass defClass(String className, String body) {
         className = className.trim();
         InlineClass clz = new InlineClass(className, body);
@@ -639,6 +717,17 @@ public class CodeBuilder extends TextBuilder {
         logTime = true;
     }
 
+    protected String memoizeTTL = null;
+
+    /**
+     * Cache the whole output of the template keyed by the render args
+     *
+     * @param ttl the expression of the ttl in seconds
+     */
+    public void setMemoize(String ttl) {
+        memoizeTTL = ttl;
+    }
+
     public String getRenderArgType(String name) {
         addInferencedRenderArgs();
         RenderArgDeclaration rad = renderArgs.get(name);
@@ -846,10 +935,13 @@ public class CodeBuilder extends TextBuilder {
             pSetup();
             if (!simpleTemplate()) pExtendInitArgCode();
             pRenderArgs();
-            pStaticCodes();
+            pMemoize();
+            pRenderIntoCaller();
             pInlineClasses();
             pInlineTags();
             pBuild();
+            // static handles are declared while the expressions are built
+            pStaticCodes();
             pFinalCode();
             RythmEvents.ON_CLOSING_JAVA_CLASS.trigger(engine, this);
             pClassClose();
@@ -1064,11 +1156,12 @@ public class CodeBuilder extends TextBuilder {
             pn();
             ptn("@SuppressWarnings(\"unchecked\") public TemplateBase __setRenderArgs(java.lang.Object... __args) {");
             {
-                p2tn("int __p = 0, __l = __args.length;");
-                int i = userDefinedArgNumber;
-                for (RenderArgDeclaration arg : renderArgList) {
-                    p2t("if (__p < __l) { \n\t\t\tObject v = __args[__p++]; \n\t\t\t").p(arg.name).p(" = __safeCast(v, ").p(arg.objectType()).p(".class); \n\t\t\t__renderArgs.put(\"").p(arg.name).p("\",").p(arg.name).p(");\n\t\t}\n"); 
-                    if (--i == 0) break;
+                p2tn("int __l = __args.length;");
+                for (int i = 0; i < userDefinedArgNumber; ++i) {
+                    RenderArgDeclaration arg = renderArgList.get(i);
+                    p2t("if (").p(i).p(" < __l) { \n\t\t\t").p(arg.name).p(" = __safeCast(__args[").p(i).p("], ").p(arg.objectType()).p(".class); \n\t\t\t");
+                    pBound(arg, i);
+                    p("\n\t\t}\n");
                 }
             }
             p2tn("return this;");
@@ -1110,23 +1203,48 @@ public class CodeBuilder extends TextBuilder {
         // -- output __setRenderArg by position
         pn();
         ptn("@SuppressWarnings(\"unchecked\") public TemplateBase __setRenderArg(int __pos, java.lang.Object __arg) {");
-        p2tn("int __p = 0;");
-        if (true) {
-            first = true;
-            for (RenderArgDeclaration arg : renderArgList) {
-                if (first) {
-                    first = false;
-                    p2t("");
-                } else {
-                    p2t("else ");
-                }
-                p2t("if (__p++ == __pos) { \n\t\t\tObject v = __arg; \n\t\t\t").p(arg.name).p(" = __safeCast(v, ").p(arg.objectType()).p(".class); \n\t\t\t__renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).p(");\n\t\t}\n"); 
+        if (!renderArgList.isEmpty()) {
+            p2tn("switch (__pos) {");
+            for (int i = 0; i < renderArgList.size(); ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("case ").p(i).p(": ").p(arg.name).p(" = __safeCast(__arg, ").p(arg.objectType()).p(".class); ");
+                pBound(arg, i);
+                pn(" break;");
             }
+            p2tn("}");
         }
         // the first argument has a default name "arg"
         p2tn("if(0 == __pos) __setRenderArg(\"arg\", __arg);");
         p2tn("return this;");
         ptn("}");
+
+        // -- output __flushRenderArgs to copy the args bound by position into the render arg map
+        int bits = Math.min(renderArgList.size(), MAX_BOUND_ARGS);
+        if (bits > 0) {
+            pn();
+            ptn("protected void __flushRenderArgs() {");
+            p2tn("long __b = __boundArgs;");
+            for (int i = 0; i < bits; ++i) {
+                RenderArgDeclaration arg = renderArgList.get(i);
+                p2t("if (0L != (__b & ").p(1L << i).p("L)) __renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).pn(");");
+            }
+            ptn("}");
+        }
+    }
+
+    // number of render args tracked by the TemplateBase.__boundArgs bit set
+    private static final int MAX_BOUND_ARGS = 64;
+
+    /*
+     * Mark the render arg at the position as bound. The arg is copied into the
+     * render arg map only when the map is read, unless it is out of the bit set
+     */
+    private void pBound(RenderArgDeclaration arg, int pos) {
+        if (pos < MAX_BOUND_ARGS) {
+            p("__boundArgs |= ").p(1L << pos).p("L;");
+        } else {
+            p("__renderArgs.put(\"").p(arg.name).p("\", ").p(arg.name).p(");");
+        }
     }
 
     protected void pExtendInitArgCode() {
@@ -1164,6 +1282,45 @@ public class CodeBuilder extends TextBuilder {
         ptn("}");
     }
 
+    protected void pMemoize() {
+        if (null == memoizeTTL) return;
+        pn();
+        ptn("protected boolean __memoized() {");
+        p2tn("return true;");
+        ptn("}");
+        pn();
+        ptn("protected int __memoizeTTL() {");
+        p2t("return ").p(memoizeTTL).pn(";");
+        ptn("}");
+        pn();
+        ptn("protected java.lang.Object[] __memoizeArgs() {");
+        p2t("return new java.lang.Object[]{");
+        boolean first = true;
+        for (String argName : renderArgs.keySet()) {
+            if (first) {
+                first = false;
+            } else {
+                p(", ");
+            }
+            p(argName);
+        }
+        pn("};");
+        ptn("}");
+    }
+
+    /*
+     * A tag without java code does not read or rewrite its own buffer, thus
+     * renders into the buffer of the calling template directly
+     */
+    protected void pRenderIntoCaller() {
+        if (scripted || !S.empty(initCode) || !S.empty(finalCode) || !inlineClasses.isEmpty()
+                || !TagBase.class.getName().equals(extended())) return;
+        pn();
+        ptn("protected boolean __renderIntoCaller() {");
+        p2tn("return true;");
+        ptn("}");
+    }
+
     protected void pInitCode() {
         if (S.isEmpty(initCode)) return;
         pn();
@@ -1285,13 +1442,54 @@ public class CodeBuilder extends TextBuilder {
         __setBuffer(sb);
         // try merge strings
         List<Token> merged = mergeStringTokens(this.builders);
+        List<String> segments = new ArrayList<String>(merged.size() + 1);
+        segments.add(sb.toString());
         for (Token b : merged) {
+            sb.setLength(0);
             b.build();
+            segments.add(sb.toString());
+        }
+        sb.setLength(0);
+        for (String s : segments) {
+            sb.append(s);
         }
         buildBody = sb.toString();
         __setBuffer(old);
-        p(buildBody);
-        p("\n\t\treturn this;\n\t}\n");
+        BuildMethodSplitter splitter = new BuildMethodSplitter(conf.buildSplitThreshold(), renderArgs.keySet());
+        if (!splitter.split(segments)) {
+            p(buildBody);
+            p("\n\t\treturn this;\n\t}\n");
+        } else {
+            // JIT won't compile methods larger than 8000 bytes of byte code, so split
+            // the body into methods. A non-null result means an early return
+            List<String> chunks = splitter.chunks();
+            List<String> references = splitter.referenceFields();
+            if (references.isEmpty()) {
+                for (int i = 0; i < chunks.size(); ++i) {
+                    p2t("if (null != ").p(BuildMethodSplitter.METHOD_PREFIX).p(i).p("()) return this;").pn();
+                }
+            } else {
+                p2tn("try {");
+                for (int i = 0; i < chunks.size(); ++i) {
+                    p3t("if (null != ").p(BuildMethodSplitter.METHOD_PREFIX).p(i).p("()) return this;").pn();
+                }
+                p2tn("} finally {");
+                for (String field : references) {
+                    p3t(field).pn(" = null;");
+                }
+                p2tn("}");
+            }
+            p("\t\treturn this;\n\t}\n");
+            for (int i = 0; i < chunks.size(); ++i) {
+                pn();
+                ptn("private org.rythmengine.utils.TextBuilder " + BuildMethodSplitter.METHOD_PREFIX + i + "(){");
+                p(chunks.get(i));
+                p("\n\t\treturn null;\n\t}\n");
+            }
+            for (Map.Entry<String, String> field : splitter.fields().entrySet()) {
+                ptn("private " + field.getValue() + " " + field.getKey() + ";");
+            }
+        }
 
         // print out consts
         for (Token.StringToken st : consts.keySet()) {
@@ -16,6 +16,8 @@ import java.util.*;
 public class ExtensionManager {
 
     private final Set<IJavaExtension> _extensions = new HashSet<IJavaExtension>();
+    // java extensions indexed by lower case method name
+    private final Map<String, List<IJavaExtension>> _extensionIndex = new HashMap<String, List<IJavaExtension>>();
     private final List<IFormatter> _fmts = new ArrayList<IFormatter>();
     private final RythmEngine engine;
 
@@ -30,13 +32,38 @@ public class ExtensionManager {
      * @param javaExtension
      */
     public void registerJavaExtension(IJavaExtension javaExtension) {
-        _extensions.add(javaExtension);
+        if (!_extensions.add(javaExtension)) {
+            return;
+        }
+        String key = indexKey(javaExtension.methodName());
+        List<IJavaExtension> l = _extensionIndex.get(key);
+        if (null == l) {
+            l = new ArrayList<IJavaExtension>();
+            _extensionIndex.put(key, l);
+        }
+        l.add(javaExtension);
     }
 
     Iterable<IJavaExtension> javaExtensions() {
         return _extensions;
     }
 
+    /**
+     * Return java extensions registered with the method name specified. The
+     * name is matched case insensitive as void parameter extensions are
+     *
+     * @param methodName
+     * @return the java extensions, or an empty list if no extension found
+     */
+    List<IJavaExtension> javaExtensions(String methodName) {
+        List<IJavaExtension> l = _extensionIndex.get(indexKey(methodName));
+        return null == l ? Collections.<IJavaExtension>emptyList() : l;
+    }
+
+    private static String indexKey(String methodName) {
+        return null == methodName ? "" : methodName.toLowerCase(Locale.ENGLISH);
+    }
+
     /**
      * Is a specified method name a java extension?
      *
@@ -44,7 +71,7 @@ public class ExtensionManager {
      * @return true if the name is a java extension
      */
     public boolean isJavaExtension(String s) {
-        for (IJavaExtension ext : _extensions) {
+        for (IJavaExtension ext : javaExtensions(s)) {
             if (S.isEqual(s, ext.methodName())) {
                 return true;
             }
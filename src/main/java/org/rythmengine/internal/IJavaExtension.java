@@ -126,6 +126,10 @@ public interface IJavaExtension {
             return methodName;
         }
 
+        String fullMethodName() {
+            return fullMethodName;
+        }
+
     }
 
 }
@@ -109,6 +109,10 @@ public enum Keyword implements IKeyword {
      * is evaluated at runtime
      */
     MACRO,
+    /**
+     * Cache the whole output of the template keyed by the render args
+     */
+    MEMOIZE,
     /**
      * For no compact in regard to engine.conf().compactEnabled()
      */
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+import org.rythmengine.extension.IDurationParser;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remember the result of a duration parser so that a duration string is
+ * parsed only once. The number of remembered strings is bounded, the table
+ * is cleared when the bound is reached.
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class MemoizedDurationParser implements IDurationParser {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private final IDurationParser parser;
+    private final ConcurrentHashMap<String, Integer> durations = new ConcurrentHashMap<String, Integer>();
+
+    public MemoizedDurationParser(IDurationParser parser) {
+        if (null == parser) throw new NullPointerException();
+        this.parser = parser;
+    }
+
+    @Override
+    public int parseDuration(String s) {
+        Integer ttl = durations.get(s);
+        if (null == ttl) {
+            ttl = parser.parseDuration(s);
+            if (durations.size() >= MAX_ENTRIES) {
+                durations.clear();
+            }
+            durations.put(s, ttl);
+        }
+        return ttl;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal;
+
+import org.rythmengine.logger.ILogger;
+import org.rythmengine.logger.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Make sure only one thread computes the value of a key at a time, other
+ * threads asking for the same key wait for the leader to finish.
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class SingleFlight {
+
+    private static final ILogger logger = Logger.get(SingleFlight.class);
+
+    private static class Flight {
+        final Thread leader = Thread.currentThread();
+        final CountDownLatch done = new CountDownLatch(1);
+    }
+
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+
+    /**
+     * Try to become the leader of the key without waiting
+     *
+     * @param key
+     * @return <code>true</code> if the calling thread is the leader of the key
+     */
+    public boolean tryAcquire(Object key) {
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        return null == existing || existing.leader == flight.leader;
+    }
+
+    /**
+     * Become the leader of the key, or wait for the current leader to finish
+     *
+     * @param key
+     * @param timeout max time to wait in milliseconds
+     * @return <code>true</code> if the calling thread is the leader of the key, or
+     * <code>false</code> if the calling thread has waited for another leader. A
+     * warning is logged if the leader does not finish within the timeout, in which
+     * case the caller usually computes the value by itself
+     */
+    public boolean acquire(Object key, long timeout) {
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (null == existing || existing.leader == flight.leader) {
+            return true;
+        }
+        try {
+            if (!existing.done.await(timeout, TimeUnit.MILLISECONDS)) {
+                logger.warn("timeout waiting %sms for %s to compute %s", timeout, existing.leader.getName(), key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Release the key if the calling thread is the leader of it, and wake up
+     * the threads waiting for it
+     *
+     * @param key
+     */
+    public void release(Object key) {
+        Flight flight = flights.get(key);
+        if (null != flight && flight.leader == Thread.currentThread() && flights.remove(key, flight)) {
+            flight.done.countDown();
+        }
+    }
+}
@@ -123,7 +123,7 @@ public class Token extends TextBuilder {
     }
 
     private RythmEngine engine = null;
-    private Iterable<IJavaExtension> javaExtensions = null;
+    private ExtensionManager extensionManager = null;
     private boolean transformEnabled = true;
     /*
      * Indicate whether token parse is good
@@ -146,7 +146,7 @@ public class Token extends TextBuilder {
         this.disableCompactMode = disableCompactMode;
         //TODO: dangerous engine assignment here. only called by AppendXXToken in AutoToStringCodeBuilder
         this.engine = Rythm.engine();
-        this.javaExtensions = engine.extensionManager().javaExtensions();
+        this.extensionManager = engine.extensionManager();
         RythmConfiguration conf = engine.conf();
         this.transformEnabled = conf.transformEnabled();
     }
@@ -161,7 +161,7 @@ public class Token extends TextBuilder {
         ctx = context;
         line = (null == context) ? -1 : context.currentLine();
         this.engine = null == ctx ? Rythm.engine() : ctx.getEngine();
-        this.javaExtensions = engine.extensionManager().javaExtensions();
+        this.extensionManager = engine.extensionManager();
         this.disableCompactMode = disableCompactMode;
         RythmConfiguration conf = engine.conf();
         this.transformEnabled = conf.transformEnabled();
@@ -279,6 +279,106 @@ public class Token extends TextBuilder {
         }
     }
 
+    private static class Pair {
+        IJavaExtension extension;
+        String signature;
+
+        Pair(IJavaExtension e, String s) {
+            extension = e;
+            signature = s;
+        }
+    }
+
+    /*
+     * Strip the trailing java extension calls, e.g. <code>.escape()</code>, off the
+     * expression and push them into the stack. Only extensions registered with the
+     * name of the trailing method call are checked, so the cost does not grow with
+     * the number of registered extensions
+     */
+    private void stripJavaExtensions(Stack<Pair> allMatched) {
+        while (true) {
+            int[] call = lastMethodCall(s);
+            if (null == call) {
+                return;
+            }
+            String name = s.substring(call[0] + 1, call[1]).trim();
+            IJavaExtension found = null;
+            for (IJavaExtension e : extensionManager.javaExtensions(name)) {
+                if (e.pattern1().matcher(s).matches()) {
+                    found = e;
+                    break;
+                }
+            }
+            if (null == found) {
+                return;
+            }
+            String signature = (found instanceof IJavaExtension.VoidParameterExtension) ? null : s.substring(call[1] + 1, call[2]);
+            s = s.substring(0, call[0]);
+            allMatched.push(new Pair(found, signature));
+        }
+    }
+
+    /**
+     * Locate the trailing method call <code>.name(...)</code> of an expression with
+     * a single backward scan.
+     *
+     * @param s the expression
+     * @return positions of the dot, the open parenthesis and the close parenthesis,
+     * or <code>null</code> if the expression does not end with a method call
+     */
+    static int[] lastMethodCall(String s) {
+        int i = s.length() - 1;
+        while (i >= 0 && Character.isWhitespace(s.charAt(i))) i--;
+        if (i < 0 || s.charAt(i) != ')') return null;
+        int close = i, depth = 0;
+        for (; i >= 0; --i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\'') {
+                // skip string or char literal
+                i--;
+                while (i >= 0 && (s.charAt(i) != c || escaped(s, i))) i--;
+                if (i < 0) return null;
+            } else if (c == ')') {
+                depth++;
+            } else if (c == '(') {
+                if (--depth == 0) break;
+            }
+        }
+        if (i < 0) return null;
+        int open = i--;
+        while (i >= 0 && Character.isWhitespace(s.charAt(i))) i--;
+        int nameEnd = i;
+        while (i >= 0 && Character.isJavaIdentifierPart(s.charAt(i))) i--;
+        if (i == nameEnd || i < 0 || s.charAt(i) != '.') return null;
+        return new int[]{i, open, close};
+    }
+
+    private static boolean escaped(String s, int pos) {
+        int n = 0;
+        while (--pos >= 0 && s.charAt(pos) == '\\') n++;
+        return n % 2 == 1;
+    }
+
+    private static final String S_FORMAT = "org.rythmengine.utils.S.format";
+    private static final Pattern P_STRING_LITERAL = Pattern.compile("\\s*(\"(?:[^\"\\\\]|\\\\.)*\")\\s*");
+
+    /*
+     * Apply the java extension to the expression. <code>.format("pattern")</code> with a
+     * literal pattern is applied through a static format handle of the template class
+     */
+    private String extend(Pair p, String s) {
+        IJavaExtension e = p.extension;
+        if (null != p.signature && null != ctx && null != ctx.getCodeBuilder()
+                && e instanceof IJavaExtension.ParameterExtension
+                && S_FORMAT.equals(((IJavaExtension.ParameterExtension) e).fullMethodName())) {
+            Matcher m = P_STRING_LITERAL.matcher(p.signature);
+            if (m.matches()) {
+                return String.format("%s.format(__template(), %s)", ctx.getCodeBuilder().formatHandle(m.group(1)), s);
+            }
+        }
+        return e.extend(s, p.signature);
+    }
+
     private String processExtensions(boolean stripExtensions) {
         if (!transformEnabled) return evalStr(s);
         RythmEngine engine = this.engine;
@@ -287,39 +387,9 @@ public class Token extends TextBuilder {
         s = stripOuterBrackets(s);
         s = checkDynaExp(s);
         outerBracketsStripped = s != s0;
-        class Pair {
-            IJavaExtension extension;
-            String signature;
-
-            Pair(IJavaExtension e, String s) {
-                extension = e;
-                signature = s;
-            }
-        }
         Stack<Pair> allMatched = new Stack<Pair>();
         // try parse java extension first
-        while (true) {
-            boolean matched = false;
-            for (IJavaExtension e : javaExtensions) {
-                Pattern p = e.pattern1();
-                Matcher m = p.matcher(s);
-                if (m.matches()) {
-                    matched = true;
-                    String signature = null;
-                    if (!(e instanceof IJavaExtension.VoidParameterExtension)) {
-                        signature = m.group(1);
-                        if (null == signature) {
-                            signature = m.group(2);
-                        }
-                    }
-                    
-                    m = e.pattern2().matcher(s);
-                    s = m.replaceAll("");
-                    allMatched.push(new Pair(e, signature));
-                }
-            }
-            if (!matched) break;
-        }
+        stripJavaExtensions(allMatched);
         boolean hasJavaExtension = !allMatched.empty();
         if (hasJavaExtension) {
             // process inner elvis expression
@@ -328,7 +398,7 @@ public class Token extends TextBuilder {
             while (!allMatched.empty()) {
                 Pair p = allMatched.pop();
                 if (!stripExtensions) {
-                    s = p.extension.extend(s, p.signature);
+                    s = extend(p, s);
                 }
             }
         } else {
@@ -336,27 +406,13 @@ public class Token extends TextBuilder {
             String[] sa = stripElvis(s);
             s = sa[0];
             String elvis = sa[1];
-            while (true) {
-                boolean matched = false;
-                for (IJavaExtension e : javaExtensions) {
-                    Pattern p = e.pattern1();
-                    Matcher m = p.matcher(s);
-                    if (m.matches()) {
-                        matched = true;
-                        String signature = (e instanceof IJavaExtension.VoidParameterExtension) ? null : m.group(1);
-                        m = e.pattern2().matcher(s);
-                        s = m.replaceAll("");
-                        allMatched.push(new Pair(e, signature));
-                    }
-                }
-                if (!matched) break;
-            }
+            stripJavaExtensions(allMatched);
             s = evalStr(s);
             while (!stripExtensions && !allMatched.empty()) {
                 // process inner elvis expression
                 s = processElvis(s);
                 Pair p = allMatched.pop();
-                s = p.extension.extend(s, p.signature);
+                s = extend(p, s);
             }
             if (!S.isEmpty(elvis)) {
                 // process outer elvis expression
@@ -15,11 +15,24 @@ import org.rythmengine.exception.FastRuntimeException;
  * To change this template use File | Settings | File Templates.
  */
 public class ClassReloadException extends FastRuntimeException {
+    /**
+     * The changed template class. If set then only this class and
+     * those depending on it need to be reloaded
+     */
+    public final TemplateClass templateClass;
+
     public ClassReloadException(String msg) {
         super(msg);
+        templateClass = null;
+    }
+
+    public ClassReloadException(String msg, TemplateClass changed) {
+        super(msg);
+        templateClass = changed;
     }
 
     public ClassReloadException(String msg, Throwable t) {
         super(msg, t);
+        templateClass = null;
     }
 }
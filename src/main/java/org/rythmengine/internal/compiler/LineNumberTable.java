@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+import org.rythmengine.utils.F;
+import org.rythmengine.utils.S;
+
+import java.util.Arrays;
+
+/**
+ * Map generated java source lines back to template source lines.
+ * <p/>
+ * <p>The code builder marks each generated statement with a trailing
+ * <code>//line: N</code> comment. Once the source is generated those
+ * comments are stripped out and collected into this table, which keeps
+ * the java source small for the compiler and the class cache</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class LineNumberTable {
+
+    private static final String MARK = "//line:";
+    private static final int NOT_A_MARK = Integer.MIN_VALUE;
+
+    // sorted java line numbers and the corresponding template line numbers
+    private final int[] javaLines;
+    private final int[] templateLines;
+
+    private LineNumberTable(int[] javaLines, int[] templateLines) {
+        this.javaLines = javaLines;
+        this.templateLines = templateLines;
+    }
+
+    /**
+     * Return the template line number of the given java line number
+     *
+     * @param javaLine the java source line number, starts from 1
+     * @return the template line number or <code>-1</code> if not mapped
+     */
+    public int templateLine(int javaLine) {
+        int i = Arrays.binarySearch(javaLines, javaLine);
+        return i < 0 ? -1 : templateLines[i];
+    }
+
+    public int size() {
+        return javaLines.length;
+    }
+
+    /**
+     * Serialize the table into a compact string: pairs of java line delta and template
+     * line separated by <code>,</code>
+     */
+    public String serialize() {
+        StringBuilder sb = new StringBuilder(javaLines.length * 6);
+        int prev = 0;
+        for (int i = 0; i < javaLines.length; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(javaLines[i] - prev).append(':').append(templateLines[i]);
+            prev = javaLines[i];
+        }
+        return sb.toString();
+    }
+
+    public static LineNumberTable deserialize(String s) {
+        if (S.empty(s)) {
+            return new LineNumberTable(new int[0], new int[0]);
+        }
+        String[] sa = s.split(",");
+        int[] javaLines = new int[sa.length];
+        int[] templateLines = new int[sa.length];
+        int prev = 0;
+        for (int i = 0; i < sa.length; ++i) {
+            String pair = sa[i];
+            int pos = pair.indexOf(':');
+            prev += Integer.parseInt(pair.substring(0, pos));
+            javaLines[i] = prev;
+            templateLines[i] = Integer.parseInt(pair.substring(pos + 1));
+        }
+        return new LineNumberTable(javaLines, templateLines);
+    }
+
+    /**
+     * Strip the trailing <code>//line: N</code> comments from the generated java source
+     * and collect them into a line number table. Lines are kept in place so the
+     * java line numbers are not changed
+     *
+     * @param javaSource the generated java source
+     * @return the stripped source and the line number table
+     */
+    public static F.T2<String, LineNumberTable> extract(String javaSource) {
+        int len = javaSource.length();
+        StringBuilder sb = new StringBuilder(len);
+        int[] javaLines = new int[64];
+        int[] templateLines = new int[64];
+        int size = 0, javaLine = 0, start = 0;
+        while (start <= len) {
+            int end = javaSource.indexOf('\n', start);
+            if (end < 0) {
+                end = len;
+            }
+            javaLine++;
+            int contentEnd = end;
+            int templateLine = NOT_A_MARK;
+            int pos = javaSource.lastIndexOf(MARK, end);
+            if (pos >= start) {
+                templateLine = parseLineNo(javaSource, pos + MARK.length(), end);
+                if (templateLine != NOT_A_MARK) {
+                    contentEnd = pos;
+                    while (contentEnd > start && isBlank(javaSource.charAt(contentEnd - 1))) {
+                        contentEnd--;
+                    }
+                }
+            }
+            sb.append(javaSource, start, contentEnd);
+            if (end < len) {
+                sb.append('\n');
+            }
+            if (templateLine > -1) {
+                if (size == javaLines.length) {
+                    javaLines = Arrays.copyOf(javaLines, size * 2);
+                    templateLines = Arrays.copyOf(templateLines, size * 2);
+                }
+                javaLines[size] = javaLine;
+                templateLines[size] = templateLine;
+                size++;
+            }
+            start = end + 1;
+        }
+        LineNumberTable table = new LineNumberTable(Arrays.copyOf(javaLines, size), Arrays.copyOf(templateLines, size));
+        return F.T2(sb.toString(), table);
+    }
+
+    // parse the line number surrounded by optional blanks in the given range
+    private static int parseLineNo(String s, int from, int to) {
+        int i = from;
+        while (i < to && isBlank(s.charAt(i))) {
+            i++;
+        }
+        boolean negative = i < to && s.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int n = 0, digits = 0;
+        while (i < to && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            n = n * 10 + (s.charAt(i++) - '0');
+            digits++;
+        }
+        while (i < to && isBlank(s.charAt(i))) {
+            i++;
+        }
+        return (digits == 0 || i < to) ? NOT_A_MARK : (negative ? -n : n);
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,6 +39,7 @@ import org.rythmengine.resource.StringTemplateResource;
 import org.rythmengine.template.ITemplate;
 import org.rythmengine.template.TagBase;
 import org.rythmengine.template.TemplateBase;
+import org.rythmengine.utils.F;
 import org.rythmengine.utils.S;
 
 /**
@@ -79,6 +81,10 @@ public class TemplateClass {
      * The Java source
      */
     private String javaSource;
+    /**
+     * Map java source lines to template source lines
+     */
+    private LineNumberTable lineNumberTable;
     /**
      * The compiled byteCode
      */
@@ -111,6 +117,12 @@ public class TemplateClass {
      * Signatures checksum
      */
     private int sigChecksum;
+    /**
+     * Incremented when the template class or a tag it invokes is reloaded, so
+     * that fragments cached by the previous generation are orphaned
+     */
+    private final AtomicInteger fragmentGeneration = new AtomicInteger();
+    private volatile FragmentNamespace fragmentNamespace;
 
     /**
      * Mark if this is a valid Rythm Template
@@ -199,6 +211,7 @@ public class TemplateClass {
         try {
             includedTemplateClasses.add(tc);
             includeTagTypes.putAll(tc.includeTagTypes);
+            engine().addIncludeRelationship(tc, this);
         } finally {
             lock.unlock();
         }
@@ -248,6 +261,23 @@ public class TemplateClass {
         }
     }
 
+    /**
+     * Check if an inline tag of the name is declared in the template
+     * or one of the templates included
+     *
+     * @param tagName
+     * @return true if the tag is declared
+     */
+    public boolean hasInlineTag(String tagName) {
+        Lock lock = mutationLock.readLock();
+        lock.lock();
+        try {
+            return includeTagTypes.containsKey(tagName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public boolean returnObject(String tagName) {
         Lock lock = mutationLock.readLock();
         lock.lock();
@@ -520,18 +550,37 @@ public class TemplateClass {
     }
 
     public ITemplate asTemplate(ITemplate caller, RythmEngine engine) {
-        Lock lock = mutationLock.readLock();
-        lock.lock();
+        Lock readLock = mutationLock.readLock();
+        readLock.lock();
         try {
-            return asTemplate_(caller, engine);
+            if (engine.isProdMode() && (null != templateInstance || !isValid)) {
+                return asTemplate_(templateInstance_(engine), caller, engine);
+            }
         } finally {
-            lock.unlock();
+            readLock.unlock();
+        }
+        // loading the template instance might refresh this class which requires the
+        // write lock, thus resolve it under the write lock and downgrade to the read
+        // lock to clone it, so that no reload could happen in between
+        ITemplate template;
+        Lock writeLock = mutationLock.writeLock();
+        writeLock.lock();
+        try {
+            template = templateInstance_(engine);
+            readLock.lock();
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            return asTemplate_(template, caller, engine);
+        } finally {
+            readLock.unlock();
         }
     }
 
-    private ITemplate asTemplate_(ITemplate caller, RythmEngine engine) {
+    private ITemplate asTemplate_(ITemplate template, ITemplate caller, RythmEngine engine) {
         TemplateBase tb = (TemplateBase) caller;
-        TemplateBase tmpl = (TemplateBase) templateInstance_(engine).__cloneMe(engine, caller);
+        TemplateBase tmpl = (TemplateBase) template.__cloneMe(engine, caller);
         tmpl.__prepareRender(tb.__curCodeType(), tb.__curLocale(), engine);
         return tmpl;
     }
@@ -554,7 +603,7 @@ public class TemplateClass {
             codeBuilder.includingCName = includingClassName;
             codeBuilder.build();
             extendedTemplateClass = codeBuilder.getExtendedTemplateClass();
-            javaSource = codeBuilder.toString();
+            setGeneratedSource(codeBuilder.toString());
             if (logger.isTraceEnabled()) {
                 logger.trace("%s ms to generate java source for template: %s", System.currentTimeMillis() - start, getKey_());
             }
@@ -578,16 +627,26 @@ public class TemplateClass {
         }
         codeBuilder.build();
         extendedTemplateClass = codeBuilder.getExtendedTemplateClass();
-        javaSource = codeBuilder.toString();
+        String source = codeBuilder.toString();
         if (engine().insideSandbox()) {
-            javaSource = CodeBuilder.preventInfiniteLoop(javaSource);
+            source = CodeBuilder.preventInfiniteLoop(source);
         }
+        setGeneratedSource(source);
         if (logger.isTraceEnabled()) {
             logger.trace("%s ms to generate java source for template: %s", System.currentTimeMillis() - start, getKey_());
         }
     }
 
 
+    /*
+     * Move the "//line: N" comments out from the generated source into the line number table
+     */
+    private void setGeneratedSource(String source) {
+        F.T2<String, LineNumberTable> t2 = LineNumberTable.extract(source);
+        javaSource = t2._1;
+        lineNumberTable = t2._2;
+    }
+
     public void buildSourceCode() {
         Lock lock = mutationLock.writeLock();
         lock.lock();
@@ -705,6 +764,7 @@ public class TemplateClass {
                     continue;
                 }
                 includedTemplateClasses.add(tc);
+                engine.addIncludeRelationship(tc, this);
             }
         }
         for (TemplateClass tc : includedTemplateClasses) {
@@ -717,7 +777,7 @@ public class TemplateClass {
         if (extendedTemplateChanged && !forceRefresh) {
             reset_();
             compiled = false;
-            engine().restart(new ClassReloadException("extended class changed"));
+            engine().restart(new ClassReloadException("extended class changed", extendedTemplateClass));
             refresh_(forceRefresh);
             return true; // pass refresh state to sub template
         }
@@ -786,7 +846,52 @@ public class TemplateClass {
         }
     }
 
+    private static final class FragmentNamespace {
+        final int generation;
+        final String prefix;
+
+        FragmentNamespace(int generation, String prefix) {
+            this.generation = generation;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Return the prefix of the keys of fragments cached by this template class.
+     * The prefix is made up of the class name, the checksum of the template
+     * source and the fragment generation of this template class
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @return the fragment key prefix
+     */
+    public String fragmentNamespace() {
+        int generation = fragmentGeneration.get();
+        FragmentNamespace ns = fragmentNamespace;
+        if (null == ns || ns.generation != generation) {
+            String source = getTemplateSource();
+            int version = null == source ? 0 : source.hashCode();
+            ns = new FragmentNamespace(generation, name + "@" + Integer.toHexString(version) + "." + generation + "/");
+            fragmentNamespace = ns;
+        }
+        return ns.prefix;
+    }
+
+    /**
+     * Orphan all fragments cached by this template class. The cached items are
+     * not removed from the cache service, they just expire
+     * <p/>
+     * <p>Not an API for user application</p>
+     */
+    public void invalidateFragments() {
+        fragmentGeneration.incrementAndGet();
+    }
+
     private void reset_() {
+        if (null != javaSource) {
+            // the template is reloaded
+            engine().invalidateFragments(this);
+        }
         javaByteCode = null;
         enhancedByteCode = null;
         javaSource = null;
@@ -1086,6 +1191,19 @@ public class TemplateClass {
         }
     }
 
+    /**
+     * Return the line number table of the generated java source
+     *
+     * @return the line number table or <code>null</code> if not available
+     */
+    public LineNumberTable getLineNumberTable() {
+        return lineNumberTable;
+    }
+
+    void setLineNumberTable(LineNumberTable lineNumberTable) {
+        this.lineNumberTable = lineNumberTable;
+    }
+
     @Deprecated
     public void setJavaPackage(Package javaPackage) {
         Lock lock = mutationLock.writeLock();
@@ -110,7 +110,11 @@ public class TemplateClassCache {
             if (source.length() != 0) {
                 String s = source.toString();
                 String[] sa = s.split("__INCLUDED_TAG_TYPES__");
-                tc.setJavaSource(sa[0]);
+                String[] sa0 = sa[0].split("__LINE_NUMBER_TABLE__");
+                tc.setJavaSource(sa0[0]);
+                if (sa0.length > 1) {
+                    tc.setLineNumberTable(LineNumberTable.deserialize(sa0[1]));
+                }
                 s = sa[1];
                 sa = s.split("__INCULDED_TEMPLATE_CLASS_NAME_LIST__");
                 tc.deserializeIncludeTagTypes(sa[0]);
@@ -176,6 +180,10 @@ public class TemplateClassCache {
             if (null != tc.getJavaSource()) {
                 TextBuilder tb = new TextBuilder();
                 tb.p(tc.getJavaSource());
+                LineNumberTable lineNumberTable = tc.getLineNumberTable();
+                if (null != lineNumberTable) {
+                    tb.p("__LINE_NUMBER_TABLE__").p(lineNumberTable.serialize());
+                }
                 tb.p("__INCLUDED_TAG_TYPES__").p(tc.serializeIncludeTagTypes());
                 tb.p("__INCULDED_TEMPLATE_CLASS_NAME_LIST__").p(tc.refreshIncludeTemplateClassNames())
                         .p("__IMPORT_PATH_LIST__");
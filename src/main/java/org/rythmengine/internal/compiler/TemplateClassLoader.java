@@ -186,6 +186,7 @@ public class TemplateClassLoader extends ClassLoader {
         super(parent);
         this.engine = engine;
         this.conf = engine.conf();
+        this.generation = 0;
         for (TemplateClass tc : engine.classes().all()) {
             tc.uncompile();
         }
@@ -200,6 +201,35 @@ public class TemplateClassLoader extends ClassLoader {
 //        }
     }
 
+    /**
+     * Construct a child class loader that redefines only the template classes
+     * specified. All other template classes already defined are shared with
+     * the parent loader
+     *
+     * @param parent  the current template class loader
+     * @param reloads the template classes to be redefined in this loader
+     */
+    public TemplateClassLoader(TemplateClassLoader parent, Collection<TemplateClass> reloads) {
+        super(parent);
+        this.engine = parent.engine;
+        this.conf = parent.conf;
+        this.protectionDomain = parent.protectionDomain;
+        this.pathHash = parent.pathHash;
+        this.generation = parent.generation + 1;
+        for (TemplateClass tc : reloads) {
+            tc.uncompile();
+        }
+    }
+
+    /**
+     * Number of partial reloads stacked upon the root template class loader
+     */
+    private final int generation;
+
+    public int generation() {
+        return generation;
+    }
+
     private static final ThreadLocal<String> sandboxPassword = new ThreadLocal<String>();
 
     public static void setSandboxPassword(String password) {
@@ -272,6 +302,13 @@ public class TemplateClassLoader extends ClassLoader {
             if (templateClass.isDefinable()) {
                 return templateClass.getJavaClass();
             }
+            if (generation > 0) {
+                // class not reloaded by this loader, share the one defined in parent loader
+                Class<?> c = templateClass.getJavaClass();
+                if (null != c) {
+                    return c;
+                }
+            }
             byte[] bc = templateClass.getEnhancedByteCode();//bCache.getBytecode(name, templateClass.javaSource);
             if (!templateClass.isClass()) {
                 definePackage(templateClass.getPackage(), null, null, null, null, null, null, null);
@@ -435,7 +472,7 @@ public class TemplateClassLoader extends ClassLoader {
             engine.classes().remove(tc);
             currentState = new TemplateClassloaderState();
         } else {
-            throw new ClassReloadException("Need reload");
+            throw new ClassReloadException("Need reload", tc);
         }
     }
 
@@ -12,8 +12,10 @@ import org.rythmengine.resource.ITemplateResource;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by IntelliJ IDEA.
@@ -105,6 +107,26 @@ public class TemplateClassManager {
         } catch (ClassReloadException e) {
             engine.restart(e);
         }
+        if (!engine.conf().cacheDisabled()) {
+            // tags invoked in cached fragments are not invoked again when
+            // the fragments are served from the cache
+            checkInvokedTags(tc, new HashSet<TemplateClass>());
+        }
+    }
+
+    private void checkInvokedTags(TemplateClass tc, Set<TemplateClass> checked) {
+        checked.add(tc);
+        for (TemplateClass tag : engine.dependencies().dependenciesOf(tc, TemplateDependencyGraph.Kind.INVOKE)) {
+            if (checked.contains(tag)) {
+                continue;
+            }
+            try {
+                engine.classLoader().detectChange(tag);
+            } catch (ClassReloadException e) {
+                engine.restart(e);
+            }
+            checkInvokedTags(tag, checked);
+        }
     }
 
     List<TemplateClass> getEmbeddedClasses(String name) {
@@ -142,6 +164,7 @@ public class TemplateClassManager {
         }
         for (String cn : embedded) clsNameIdx.remove(cn);
         if (null != templateClass && null != templateClass.getTemplateResource()) tmplIdx.remove(templateClass.getKey());
+        engine.dependencies().remove(templateClass);
     }
 
     public void remove(String name) {
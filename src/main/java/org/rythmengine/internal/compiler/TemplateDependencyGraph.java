@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.compiler;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Track the dependencies between template classes so that a change to
+ * one template only reloads the templates that actually depend on it.
+ * <p/>
+ * <p>There are three kinds of edges:</p>
+ * <ul>
+ * <li>{@link Kind#EXTEND}: the dependent template extends the layout template</li>
+ * <li>{@link Kind#INCLUDE}: the dependent template includes (inlines) the other template</li>
+ * <li>{@link Kind#INVOKE}: the dependent template invokes the other template as a tag</li>
+ * </ul>
+ * <p/>
+ * <p>The generated source of a template depends on its extended and included
+ * templates, thus they need to be regenerated when those templates changed. Tag
+ * invocation is resolved by name at runtime, so invoking templates are not
+ * recompiled when the tag changed, however the edge is kept so that state
+ * associated with the invoker (e.g. fragment cache) could be invalidated</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public class TemplateDependencyGraph {
+
+    public static enum Kind {
+        EXTEND, INCLUDE, INVOKE
+    }
+
+    // dependency -> (dependent -> edge kinds)
+    private final ConcurrentHashMap<TemplateClass, ConcurrentHashMap<TemplateClass, Set<Kind>>> dependents = new ConcurrentHashMap<TemplateClass, ConcurrentHashMap<TemplateClass, Set<Kind>>>();
+
+    /**
+     * Register an edge: <code>dependent</code> depends on <code>dependency</code>
+     *
+     * @param dependency the template being extended/included/invoked
+     * @param dependent  the template that extends/includes/invokes
+     * @param kind       the edge kind
+     */
+    public void addEdge(TemplateClass dependency, TemplateClass dependent, Kind kind) {
+        if (null == dependency || null == dependent || dependency == dependent) {
+            return;
+        }
+        ConcurrentHashMap<TemplateClass, Set<Kind>> m = dependents.get(dependency);
+        if (null == m) {
+            m = new ConcurrentHashMap<TemplateClass, Set<Kind>>();
+            ConcurrentHashMap<TemplateClass, Set<Kind>> m0 = dependents.putIfAbsent(dependency, m);
+            if (null != m0) {
+                m = m0;
+            }
+        }
+        Set<Kind> kinds = m.get(dependent);
+        if (null == kinds) {
+            kinds = Collections.newSetFromMap(new ConcurrentHashMap<Kind, Boolean>());
+            Set<Kind> kinds0 = m.putIfAbsent(dependent, kinds);
+            if (null != kinds0) {
+                kinds = kinds0;
+            }
+        }
+        kinds.add(kind);
+    }
+
+    /**
+     * Return the templates directly depending on the given template with
+     * any of the given edge kinds
+     *
+     * @param dependency the template
+     * @param kinds      the edge kinds, if empty then all kinds are considered
+     * @return the direct dependents
+     */
+    public Set<TemplateClass> dependentsOf(TemplateClass dependency, Kind... kinds) {
+        Map<TemplateClass, Set<Kind>> m = dependents.get(dependency);
+        if (null == m || m.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<TemplateClass> set = new HashSet<TemplateClass>();
+        for (Map.Entry<TemplateClass, Set<Kind>> entry : m.entrySet()) {
+            if (matches(entry.getValue(), kinds)) {
+                set.add(entry.getKey());
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Return the templates the given template directly depends on with any of
+     * the given edge kinds
+     *
+     * @param dependent the template
+     * @param kinds     the edge kinds, if empty then all kinds are considered
+     * @return the direct dependencies
+     */
+    public Set<TemplateClass> dependenciesOf(TemplateClass dependent, Kind... kinds) {
+        Set<TemplateClass> set = new HashSet<TemplateClass>();
+        for (Map.Entry<TemplateClass, ConcurrentHashMap<TemplateClass, Set<Kind>>> entry : dependents.entrySet()) {
+            Set<Kind> edgeKinds = entry.getValue().get(dependent);
+            if (null != edgeKinds && matches(edgeKinds, kinds)) {
+                set.add(entry.getKey());
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Return the given template along with all templates transitively depending
+     * on it through any of the given edge kinds
+     *
+     * @param dependency the template
+     * @param kinds      the edge kinds, if empty then all kinds are considered
+     * @return the template and its transitive dependents
+     */
+    public Set<TemplateClass> closureOf(TemplateClass dependency, Kind... kinds) {
+        Set<TemplateClass> visited = new LinkedHashSet<TemplateClass>();
+        Deque<TemplateClass> queue = new ArrayDeque<TemplateClass>();
+        queue.add(dependency);
+        while (!queue.isEmpty()) {
+            TemplateClass tc = queue.poll();
+            if (!visited.add(tc)) {
+                continue;
+            }
+            queue.addAll(dependentsOf(tc, kinds));
+        }
+        return visited;
+    }
+
+    /**
+     * Return the templates that must be regenerated and redefined when the given
+     * template changed, i.e. the template itself and all templates that extend
+     * or include it directly or indirectly
+     *
+     * @param changed the changed template
+     * @return the templates to be reloaded
+     */
+    public Set<TemplateClass> reloadSetOf(TemplateClass changed) {
+        return closureOf(changed, Kind.EXTEND, Kind.INCLUDE);
+    }
+
+    /**
+     * Remove a template from the graph, both as dependency and dependent
+     *
+     * @param tc the template class
+     */
+    public void remove(TemplateClass tc) {
+        dependents.remove(tc);
+        for (Map<TemplateClass, Set<Kind>> m : dependents.values()) {
+            m.remove(tc);
+        }
+    }
+
+    public void clear() {
+        dependents.clear();
+    }
+
+    private static boolean matches(Set<Kind> edgeKinds, Kind... kinds) {
+        if (kinds.length == 0) {
+            return !edgeKinds.isEmpty();
+        }
+        for (Kind kind : kinds) {
+            if (edgeKinds.contains(kind)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
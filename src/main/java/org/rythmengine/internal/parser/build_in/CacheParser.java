@@ -6,6 +6,7 @@
 package org.rythmengine.internal.parser.build_in;
 
 import com.stevesoft.pat.Regex;
+import org.rythmengine.cache.FragmentCacheMetrics;
 import org.rythmengine.internal.IContext;
 import org.rythmengine.internal.IParser;
 import org.rythmengine.internal.Keyword;
@@ -25,11 +26,24 @@ public class CacheParser extends KeywordParserFactory {
     private static final Pattern P_INT = Pattern.compile("\\-?[0-9\\*\\/\\+\\-]+");
 
     public static void validateDurationStr(String d, IContext ctx) {
-        if ("null".equals(d)) return;
+        resolveDurationStr(d, ctx);
+    }
+
+    /**
+     * Validate the duration and resolve it to the java expression of the ttl in
+     * seconds. A duration string literal is parsed here so that it is not parsed
+     * again each time the cached item is stored
+     *
+     * @param d   the duration, either a double quoted string or an int expression
+     * @param ctx
+     * @return the ttl expression
+     */
+    public static String resolveDurationStr(String d, IContext ctx) {
+        if ("null".equals(d)) return "0";
         if ((d.startsWith("\"") && d.endsWith("\""))) {
             String s = S.stripQuotation(d);
             try {
-                ctx.getEngine().conf().durationParser().parseDuration(s);
+                return String.valueOf(ctx.getEngine().conf().durationParser().parseDuration(s));
             } catch (Exception e) {
                 raiseParseException(ctx, "Invalid time duration: %s", d);
             }
@@ -38,22 +52,39 @@ public class CacheParser extends KeywordParserFactory {
                 raiseParseException(ctx, "Invalid time duration: %s. int(second) or string expected. String must be double quoted", d);
             }
         }
+        return "(" + d + ")";
+    }
+
+    /**
+     * Register the template class and line of a cached fragment to the
+     * {@link org.rythmengine.cache.FragmentCacheMetrics fragment cache metrics}
+     *
+     * @param key  the cache key of the fragment
+     * @param ctx
+     * @param line the line of the fragment
+     */
+    public static void registerFragment(String key, IContext ctx, int line) {
+        FragmentCacheMetrics metrics = ctx.getEngine().fragmentCacheMetrics();
+        if (null != metrics) {
+            metrics.register(key, ctx.getTemplateClass().name(), line);
+        }
     }
 
     /*
     {
-      String s = __engine().cached("key", 1, foo.bar());
-      if (null != s) {
-        p(s);
-      } else {
-        StringBuilder sbOld = __getBuffer();
-        StringBuilder sbNew = new StringBuilder()
-        __setBuffer(sbNew);
-        ...
-        s = sbNew.toString();
-        __setBuffer(sbOld);
-        __engine().cache("key", s, duration, 1, foo.bar());
-        p(s)
+      if (!__pCached("key", 1, foo.bar())) {
+        try {
+          StringBuilder sbOld = __getBuffer();
+          StringBuilder sbNew = new StringBuilder()
+          __setBuffer(sbNew);
+          ...
+          String s = sbNew.toString();
+          __setBuffer(sbOld);
+          __cache("key", s, ttl, 1, foo.bar());
+          p(s)
+        } finally {
+          __releaseCacheFlight("key", 1, foo.bar());
+        }
       }
     }
      */
@@ -66,9 +97,8 @@ public class CacheParser extends KeywordParserFactory {
 
         CacheToken(String duration, String args, IContext ctx) {
             super("", ctx);
-            this.duration = S.isEmpty(duration) ? "null" : duration;
-            // check if duration is valid
-            validateDurationStr(this.duration, ctx);
+            // check if duration is valid and resolve it to ttl
+            this.duration = resolveDurationStr(S.isEmpty(duration) ? "null" : duration, ctx);
             this.args = args;
             this.startIndex = ctx.cursor();
         }
@@ -77,13 +107,9 @@ public class CacheParser extends KeywordParserFactory {
         public void output() {
             p("{");
             pline();
-            pt("java.io.Serializable s = __engine().cached(\"").p(key).p("\"").p(args).p(");");
+            pt("if (!__pCached(\"").p(key).p("\"").p(args).p(")) {");
             pline();
-            pt("if (null != s) {");
-            pline();
-            p2t("p(s);");
-            pline();
-            pt("} else {");
+            pt("try {");
             pline();
             p2t("StringBuilder sbOld = __getBuffer();");
             pline();
@@ -100,17 +126,24 @@ public class CacheParser extends KeywordParserFactory {
             String tmplName = ctx.getTemplateClass().name();
             String keySeed = body + tmplName;
             key = UUID.nameUUIDFromBytes(keySeed.getBytes()).toString();
+            registerFragment(key, ctx, line);
             StringBuilder sbOld = __getBuffer();
             StringBuilder sbNew = new StringBuilder();
             __setBuffer(sbNew);
-            p2t("s = sbNew.toString();");
+            p2t("String s = sbNew.toString();");
             pline();
             p2t("__setBuffer(sbOld);");
             pline();
-            p2t("__engine().cache(\"").p(key).p("\",s,").p(duration).p(args).p(");");
+            p2t("__cache(\"").p(key).p("\",s,").p(duration).p(args).p(");");
             pline();
             p2t("p(s);");
             pline();
+            pt("} finally {");
+            pline();
+            p2t("__releaseCacheFlight(\"").p(key).p("\"").p(args).p(");");
+            pline();
+            pt("}");
+            pline();
             pt("}");
             pline();
             p("}");
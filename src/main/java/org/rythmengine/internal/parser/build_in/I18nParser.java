@@ -46,17 +46,12 @@ public class I18nParser extends KeywordParserFactory {
                 String s = S.stripBrace(r.stringMatched(1).replace("@i18n", ""));
                 r = new Regex(innerPattern());
                 if (r.search(s)) {
-                    // "" or '' present so prefetch String or MessageFormat
+                    // "" or '' present so output the message through a static handle of the key
+                    String handle = ctx.getCodeBuilder().i18nHandle("\"" + S.stripQuotation(r.stringMatched(1)) + "\"");
                     String args = r.stringMatched(3);
-                    if (S.empty(args)) {
-                        String k = r.stringMatched(1);
-                        s = "\"" + S.stripQuotation(k) + "\"";
-                    } else {
-                        String k = r.stringMatched(1);
-                        s = "\"" + S.stripQuotation(k) + "\", " + args;
-                    }
+                    s = S.empty(args) ? handle : handle + ", " + args;
                 }
-                // cannot pre-resolve, output S.i18n directly
+                // otherwise the key is an expression, cannot pre-resolve
                 s = String.format("__i18n(%s)", s);
                 s = ExpressionParser.processPositionPlaceHolder(s);
                 return new CodeToken(s, ctx()) {
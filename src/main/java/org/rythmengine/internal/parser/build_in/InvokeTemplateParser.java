@@ -161,13 +161,13 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             } else {
                 cacheDuration = "null";
             }
-            // check if duration is valid
-            CacheParser.validateDurationStr(cacheDuration, ctx);
             if (sa.length > 1) {
                 cacheArgs = param.replaceFirst(cacheDuration, "");
             } else {
-                cacheArgs = ", _plUUID";
+                cacheArgs = ", _pl";
             }
+            // check if duration is valid and resolve it to ttl
+            cacheDuration = CacheParser.resolveDurationStr(cacheDuration, ctx);
         }
 
         private void parseEscape(String param) {
@@ -208,19 +208,67 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
 
         protected String cacheKey() {
             if (null == cacheKey) {
-                if (!isDynamic) {
-                    cacheKey = "\"" + UUID.nameUUIDFromBytes(("_RYTHM_TAG_" + tagName + ctx.getTemplateClass().name()).getBytes()).toString() + "\"";
-                } else {
-                    cacheKey = "\"_RYTHM_TAG_\" + " + tagName + " + \"" + ctx.getTemplateClass().name() + "\"";
-                }
+                // the name of a dynamic tag is passed in the cache args, each invocation
+                // is identified by the template class and line
+                String seed = isDynamic ? "_RYTHM_DYNAMIC_TAG_" : "_RYTHM_TAG_" + tagName;
+                cacheKey = "\"" + UUID.nameUUIDFromBytes((seed + ctx.getTemplateClass().name() + ":" + line).getBytes()).toString() + "\"";
             }
             return cacheKey;
         }
 
+        /*
+         * The name of a dynamic tag is evaluated at runtime and passed in the
+         * cache args so that the cache key stays a constant
+         */
+        protected String cacheArgs() {
+            return isDynamic ? ", " + tagName + cacheArgs : cacheArgs;
+        }
+
         protected boolean needsNewOut() {
             return (assignTo != null) || (escape != null) || enableCache;
         }
 
+        /*
+         * Whether the cached result is output by __pCached, which writes
+         * the cached bytes directly when rendering to an output stream
+         */
+        protected boolean outputCached() {
+            return enableCache && null == assignTo;
+        }
+
+        protected void pCachedBegin() {
+            if (enableCache) {
+                CacheParser.registerFragment(S.stripQuotation(cacheKey()), ctx, line);
+                if (outputCached()) {
+                    pt("if (!__pCached(").p(cacheKey()).p(cacheArgs()).p(")) {");
+                    pline();
+                    ptline("try {");
+                    return;
+                }
+                pt("_r_s = __cachedFlight(").p(cacheKey()).p(cacheArgs()).p(");");
+                pline();
+                ptline("if (null == _r_s) {");
+                ptline("try {");
+                return;
+            }
+            ptline("if (null == _r_s) {");
+        }
+
+        protected void pCachedEnd() {
+            if (enableCache) {
+                p2t("__cache(").p(cacheKey()).p(", _r_s, ").p(cacheDuration).p(cacheArgs()).p(");");
+                pline();
+                if (outputCached()) {
+                    p2tline("p(_r_s);");
+                }
+                ptline("} finally {");
+                p2t("__releaseCacheFlight(").p(cacheKey()).p(cacheArgs()).p(");");
+                pline();
+                ptline("}");
+            }
+            ptline("}");
+        }
+
         @Override
         public void output() {
             if (assignTo != null) {
@@ -244,12 +292,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             }
             if (needsNewOut()) {
                 ptline("Object _r_s = null;");
-                if (enableCache) {
-                    ptline("String _plUUID = null == _pl ? \"\" : _pl.toUUID();");
-                    pt("_r_s = __engine().cached(").p(cacheKey()).p(cacheArgs).p(");");
-                    pline();
-                }
-                ptline("if (null == _r_s) {");
+                pCachedBegin();
                 p2tline("StringBuilder sbOld = __getBuffer();");
                 p2tline("StringBuilder sbNew = new StringBuilder();");
                 p2tline("setSelfOut(sbNew);");
@@ -264,11 +307,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                 if (escape != null) {
                     p2tline(String.format("_r_s = org.rythmengine.utils.Escape.%s.apply(_r_s);", escape.name()));
                 }
-                if (enableCache) {
-                    p2t("__engine().cache(").p(cacheKey()).p(", _r_s, ").p(cacheDuration).p(cacheArgs).p(");");
-                    pline();
-                }
-                ptline("}");
+                pCachedEnd();
                 if (assignTo != null) {
                     if (assignToFinal) {
                         pt(assignTo).p("___ = _r_s;");
@@ -276,7 +315,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
                         pt(assignTo).p(" = _r_s;");
                     }
                     pline();
-                } else {
+                } else if (!outputCached()) {
                     ptline("p(_r_s);");
                 }
             } else {
@@ -313,11 +352,10 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
         @Override
         protected String cacheKey() {
             if (null == cacheKey) {
-                if (!isDynamic) {
-                    cacheKey = "\"" + UUID.nameUUIDFromBytes(("_RYTHM_TAG_" + tagName + key + ctx.getTemplateClass().name()).getBytes()).toString() + "\"";
-                } else {
-                    cacheKey = "\"_RYTHM_TAG_\" + " + tagName + " + \"" + key + "\"" + " + \"" + ctx.getTemplateClass().name() + "\"";
-                }
+                // the name of a dynamic tag is passed in the cache args, each invocation
+                // is identified by the template class and line
+                String seed = isDynamic ? "_RYTHM_DYNAMIC_TAG_" : "_RYTHM_TAG_" + tagName;
+                cacheKey = "\"" + UUID.nameUUIDFromBytes((seed + key + ctx.getTemplateClass().name() + ":" + line).getBytes()).toString() + "\"";
             }
             return cacheKey;
         }
@@ -354,12 +392,7 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             String curClassName = ctx.getCodeBuilder().includingClassName();
             if (needsNewOut()) {
                 pline("Object _r_s = null;");
-                if (enableCache) {
-                    ptline("String _plUUID = null == _pl ? \"\" : _pl.toUUID();");
-                    pt("_r_s = __engine().cached(").p(cacheKey()).p(cacheArgs).p(");");
-                    pline();
-                }
-                ptline("if (null == _r_s) {");
+                pCachedBegin();
                 p2tline("StringBuilder sbOld = __getBuffer();");
                 p2tline("StringBuilder sbNew = new StringBuilder();");
                 p2tline("setSelfOut(sbNew);");
@@ -452,15 +485,11 @@ public class InvokeTemplateParser extends CaretParserFactoryBase {
             if (escape != null) {
                 p2tline(String.format("_r_s = org.rythmengine.utils.Escape.%s.apply(_r_s);", escape.name()));
             }
-            if (enableCache) {
-                p2t("__engine().cache(").p(cacheKey()).p(", _r_s, ").p(cacheDuration).p(cacheArgs).p(");");
-                pline();
-            }
-            ptline("}");
+            pCachedEnd();
             if (assignTo != null) {
                 pt(assignTo).p(" = _r_s;");
                 pline();
-            } else {
+            } else if (!outputCached()) {
                 ptline("p(_r_s);");
             }
             p2tline("}");
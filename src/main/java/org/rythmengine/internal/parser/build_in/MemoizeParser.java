@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.internal.parser.build_in;
+
+import com.stevesoft.pat.Regex;
+import org.rythmengine.internal.IContext;
+import org.rythmengine.internal.IParser;
+import org.rythmengine.internal.Keyword;
+import org.rythmengine.internal.Token;
+import org.rythmengine.internal.parser.Directive;
+import org.rythmengine.internal.parser.RemoveLeadingLineBreakAndSpacesParser;
+import org.rythmengine.utils.S;
+
+/**
+ * Parse <code>@memoize("1h")</code>. The whole output of the template is cached
+ * with the key derived from the declared render args, the locale and the code type,
+ * so the template is rendered once per distinct input:
+ * <p/>
+ * <pre><code>
+ * {@literal @}args String name, int price
+ * {@literal @}memoize("1h")
+ * &lt;div class="card"&gt;@name: @price&lt;/div&gt;
+ * </code></pre>
+ * <p/>
+ * <p>The duration is optional, the default cache TTL is used if it is not specified.
+ * Note render args are used in the cache key by their values, or by the
+ * <code>toString()</code> result if not a string, number, boolean, enum or
+ * locale</p>
+ */
+public class MemoizeParser extends KeywordParserFactory {
+
+    @Override
+    public Keyword keyword() {
+        return Keyword.MEMOIZE;
+    }
+
+    public IParser create(final IContext ctx) {
+        return new RemoveLeadingLineBreakAndSpacesParser(ctx) {
+            public Token go() {
+                Regex r = reg(dialect());
+                if (!r.search(remain())) {
+                    raiseParseException("error parsing @memoize, correct usage: @memoize(\"1h\")");
+                }
+                final int lineNo = ctx().currentLine();
+                step(r.stringMatched().length());
+                String duration = S.stripBrace(r.stringMatched(1)).trim();
+                final String ttl = CacheParser.resolveDurationStr(S.isEmpty(duration) ? "null" : duration, ctx());
+                return new Directive("", ctx()) {
+                    @Override
+                    public void call() {
+                        CacheParser.registerFragment(ctx().getTemplateClass().name(), ctx(), lineNo);
+                        ctx().getCodeBuilder().setMemoize(ttl);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    protected String patternStr() {
+        return "%s%s\\s*((?@()))[ \\t\\x0B\\f]*[\\r\\n]*";
+    }
+}
@@ -59,6 +59,7 @@ public class ScriptParser extends RemoveLeadingLineBreakAndSpacesParser {
         if (!hasIfStatement && !lastLine.trim().endsWith(";")) sb.append(";");
         String code = sb.toString();
         checkRestrictedClass(code);
+        ctx.getCodeBuilder().scripted();
         return new CodeToken(code, ctx);
     }
 
@@ -203,11 +203,13 @@ public interface ITag {
         }
 
         private void call(StringBuilder out) {
-            __buffer = out;
+            // restore the previous buffer in case the body is rendered recursively
+            StringBuilder prev = __buffer;
+            setSelfOut(out);
             try {
                 __call();
             } finally {
-                __buffer = null;
+                setSelfOut(prev);
             }
         }
 
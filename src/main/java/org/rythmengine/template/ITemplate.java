@@ -147,6 +147,15 @@ public interface ITemplate extends ITag, Cloneable {
      */
     void render(Writer w);
 
+    /**
+     * Render a section or an inline tag without arguments of the template and return
+     * the result as String. The rest of the template is skipped where possible
+     *
+     * @param section the section name or inline tag name
+     * @return the section content, or an empty string if not found
+     */
+    String renderSection(String section);
+
     /**
      * Must be called before real render() happened.
      * Also if the template extends a parent template, then
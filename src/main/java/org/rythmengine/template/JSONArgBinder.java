@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.template;
+
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONToken;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Bind render args from a JSON stream. Values are deserialized straight into the
+ * declared arg types, no intermediate JSON object tree is built for the payload
+ */
+final class JSONArgBinder {
+
+    private JSONArgBinder() {
+    }
+
+    /**
+     * Bind the JSON object fields to the render args of the same name, or the
+     * JSON array elements to the render args by position. If the template declares
+     * a single <code>List</code> arg then the whole JSON array is bound to it.
+     * Values not matching a declared arg are skipped
+     *
+     * @param template the template
+     * @param types    the render arg types of the template
+     * @param json     the JSON data
+     */
+    static void bind(TemplateBase template, RenderArgTypes types, Reader json) {
+        JSONReader reader = new JSONReader(json);
+        try {
+            if (reader.peek() == JSONToken.LBRACKET) {
+                bindArray(template, types, reader);
+            } else {
+                bindObject(template, types, reader);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void bindObject(TemplateBase template, RenderArgTypes types, JSONReader reader) {
+        reader.startObject();
+        while (reader.hasNext()) {
+            String name = reader.readString();
+            Type type = types.genericType(name);
+            if (null == type) {
+                reader.readObject();
+            } else {
+                template.__setRenderArg(name, reader.readObject(type));
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void bindArray(TemplateBase template, RenderArgTypes types, JSONReader reader) {
+        Class[] argTypes = template.__renderArgTypeArray();
+        int len = null == argTypes ? 0 : argTypes.length;
+        if (len == 1 && argTypes[0].equals(List.class)) {
+            String name = template.__renderArgName(0);
+            template.__setRenderArg(name, reader.readObject(types.genericType(name)));
+            return;
+        }
+        reader.startArray();
+        for (int i = 0; reader.hasNext(); ++i) {
+            if (i < len) {
+                template.__setRenderArg(i, reader.readObject(types.genericType(template.__renderArgName(i))));
+            } else {
+                reader.readObject();
+            }
+        }
+        reader.endArray();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.template;
+
+import com.alibaba.fastjson.util.ParameterizedTypeImpl;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The render arg types of a template class. The instance is created once by the
+ * prototype template and shared by all template instances cloned from it
+ */
+final class RenderArgTypes {
+
+    private final Map<String, Class> types;
+
+    // the generic types of the declared args, e.g. List&lt;Foo&gt; instead of List
+    private volatile Map<String, Type> genericTypes;
+
+    RenderArgTypes(Map<String, Class> types) {
+        this.types = types;
+    }
+
+    /**
+     * Return the render arg types mapped by name, see {@link TemplateBase#__renderArgTypeMap()}
+     */
+    Map<String, Class> types() {
+        return types;
+    }
+
+    /**
+     * Return the generic type of the render arg, or <code>null</code> if
+     * there is no render arg declared with the name
+     */
+    Type genericType(String name) {
+        Map<String, Type> m = genericTypes;
+        if (null == m) {
+            m = genericTypes();
+            genericTypes = m;
+        }
+        return m.get(name);
+    }
+
+    private Map<String, Type> genericTypes() {
+        Map<String, Type> m = new HashMap<String, Type>();
+        for (Map.Entry<String, Class> entry : types.entrySet()) {
+            String name = entry.getKey();
+            Class c = entry.getValue();
+            if (name.contains("__") && types.containsKey(name.substring(0, name.lastIndexOf("__")))) {
+                // type parameter of a generic arg
+                continue;
+            }
+            List<Type> params = new ArrayList<Type>();
+            for (int i = 0; ; ++i) {
+                Class p = types.get(name + "__" + i);
+                if (null == p) break;
+                params.add(p);
+            }
+            if (params.isEmpty() || c.getTypeParameters().length != params.size()) {
+                m.put(name, c);
+            } else {
+                m.put(name, new ParameterizedTypeImpl(params.toArray(new Type[params.size()]), null, c));
+            }
+        }
+        return m;
+    }
+}
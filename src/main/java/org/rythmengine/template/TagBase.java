@@ -85,10 +85,15 @@ public abstract class TagBase extends TemplateBase implements ITag {
         calling = true;
         try {
             if (null != __context) {
-                __buffer = new StringBuilder();
-                __context.p(S.raw(renderWithParent()));
+                if (!__renderIntoCaller() || !__renderInto(__context.buffer())) {
+                    setSelfOut(new StringBuilder());
+                    __context.p(S.raw(renderWithParent()));
+                }
             } else if (null != __caller && null != __buffer) {
-                __caller.p(S.raw(renderWithParent())); // a real tag
+                // a real tag
+                if (!__renderIntoCaller() || !(__caller instanceof TemplateBase) || !__renderInto(((TemplateBase) __caller).__tagSink())) {
+                    __caller.p(S.raw(renderWithParent()));
+                }
             } else {
                 render(); // an normal template
             }
@@ -97,6 +102,18 @@ public abstract class TagBase extends TemplateBase implements ITag {
         }
     }
 
+    /**
+     * Whether this tag renders into the buffer of the calling template directly instead
+     * of its own buffer. By default the output of a tag is captured in its own buffer, the
+     * tags generated from templates without java code override this method to return
+     * <code>true</code> as they do not read or rewrite their own buffer
+     *
+     * @return <code>true</code> if the tag renders into the buffer of the caller
+     */
+    protected boolean __renderIntoCaller() {
+        return false;
+    }
+
     // make sure it does not write to OutputStream or Writer
     private String renderWithParent() {
         if (null != __parent) return render();
@@ -10,11 +10,13 @@ import com.alibaba.fastjson.JSONArray;
 import org.rythmengine.Rythm;
 import org.rythmengine.RythmEngine;
 import org.rythmengine.Sandbox;
+import org.rythmengine.cache.FragmentCacheMetrics;
 import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.exception.FastRuntimeException;
 import org.rythmengine.exception.RythmException;
 import org.rythmengine.extension.ICodeType;
 import org.rythmengine.extension.II18nMessageResolver;
+import org.rythmengine.i18n.MessageHandle;
 import org.rythmengine.internal.IEvent;
 import org.rythmengine.internal.RythmEvents;
 import org.rythmengine.internal.TemplateBuilder;
@@ -100,6 +102,13 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     private Writer w;
     private OutputStream os;
+    // the buffer in use when the writer or output stream is set. Output goes to
+    // the buffer instead of the writer or output stream when the buffer is
+    // swapped out, e.g. when capturing a @cache block
+    private StringBuilder outBuffer;
+    // whether a writer or output stream is attached, resolved once when it is
+    // attached so that appending to the buffer checks a single flag
+    private boolean sinkAttached;
 
     @Override
     public ITemplate __setWriter(Writer writer) {
@@ -108,6 +117,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         if (null != this.w)
             throw new IllegalStateException("Cannot set writer to template when an writer is presented");
         this.w = writer;
+        this.outBuffer = __buffer;
+        this.sinkAttached = true;
         return this;
     }
 
@@ -118,16 +129,41 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         if (null != this.os)
             throw new IllegalStateException("Cannot set output stream to template when an outputstream is presented");
         this.os = os;
+        this.outBuffer = __buffer;
+        this.sinkAttached = true;
         return this;
     }
 
     /**
      * Stores render args of this template. The generated template source code
      * will also declare render args as separate protected field while keeping
-     * a copy inside this Map data structure
+     * a copy inside this Map data structure. Render args bound by position are
+     * copied into the map only when it is read, see {@link #__boundArgs}
      */
     protected Map<String, Object> __renderArgs = new HashMap<String, Object>();
 
+    /**
+     * Bit set of the declared render args (by position) bound to the fields
+     * but not yet copied into {@link #__renderArgs}. Not to be used in user
+     * application or template
+     */
+    protected long __boundArgs;
+
+    /**
+     * Copy the render args marked in {@link #__boundArgs} into {@link #__renderArgs}.
+     * The implementation of this method is to be generated by {@link org.rythmengine.internal.CodeBuilder}.
+     * Not to be used in user application or template
+     */
+    protected void __flushRenderArgs() {
+    }
+
+    private void __syncRenderArgs() {
+        if (0L != __boundArgs) {
+            __flushRenderArgs();
+            __boundArgs = 0L;
+        }
+    }
+
     /**
      * Return the {@link RythmEngine engine} running this template
      *
@@ -243,11 +279,13 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     /* to be used by dynamic generated sub classes */
-    private String layoutContent = "";
+    // the layout content and sections reference the buffers they were rendered
+    // into, so they are not copied until output into the layout template
+    private CharSequence layoutContent = "";
     // store the current template section content
-    private Map<String, String> layoutSections = new HashMap<String, String>();
+    private Map<String, CharSequence> layoutSections = new HashMap<String, CharSequence>();
     // store the parent default section content
-    private Map<String, String> layoutSections0 = new HashMap<String, String>();
+    private Map<String, CharSequence> layoutSections0 = new HashMap<String, CharSequence>();
     private Map<String, Object> renderProperties = new HashMap<String, Object>();
 
     /**
@@ -292,7 +330,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected RawData __render(String template) {
         if (null == template) return new RawData("");
-        return S.raw(__engine.sandbox().render(template, __renderArgs));
+        return S.raw(__engine.sandbox().render(template, __scopeArgs()));
     }
 
     /**
@@ -300,8 +338,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      *
      * @param body
      */
-    protected final void __setLayoutContent(String body) {
-        layoutContent = body;
+    protected final void __setLayoutContent(CharSequence body) {
+        layoutContent = null == body ? "" : body;
     }
 
     /**
@@ -310,8 +348,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param name
      * @param section
      */
-    private void __addLayoutSection(String name, String section, boolean def) {
-        Map<String, String> m = def ? layoutSections0 : layoutSections;
+    private void __addLayoutSection(String name, CharSequence section, boolean def) {
+        Map<String, CharSequence> m = def ? layoutSections0 : layoutSections;
         if (m.containsKey(name)) return;
         m.put(name, section);
     }
@@ -331,7 +369,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         tmpCaller = __caller;
         __caller = null;
         tmpOut = __buffer;
-        __buffer = new StringBuilder();
+        setSelfOut(new StringBuilder());
         section = name;
     }
 
@@ -350,27 +388,51 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     protected void __endSection(boolean def) {
         if (null == tmpOut && null == tmpCaller) throw new IllegalStateException("section has not been started");
-        __addLayoutSection(section, __buffer.toString(), def);
-        __buffer = tmpOut;
+        __addLayoutSection(section, __buffer, def);
+        setSelfOut(tmpOut);
         __caller = tmpCaller;
         tmpOut = null;
         tmpCaller = null;
+        if (null != __targetSection && __targetSection.equals(section)) {
+            throw SECTION_RENDERED;
+        }
     }
 
+    // the section to be rendered by renderSection
+    private String __targetSection = null;
+
+    // stop building the template once the target section is complete
+    private static final class SectionRendered extends FastRuntimeException {
+    }
+
+    private static final SectionRendered SECTION_RENDERED = new SectionRendered();
+
     /**
      * Print a layout section by name. Not to be used in user application or template
      *
      * @param name
      */
     protected void __pLayoutSection(String name) {
-        String s = layoutSections.get(name);
+        __awaitChild();
+        CharSequence s = layoutSections.get(name);
         if (null == s) s = layoutSections0.get(name);
-        else {
-            String s0 = layoutSections0.get(name);
-            if (s0 == null) s0 = "";
-            s = s.replace("\u0000\u0000inherited\u0000\u0000", s0);
+        else if (__inherits(s)) {
+            s = __inherit(s, layoutSections0.get(name));
         }
-        p(s);
+        __pSegment(s);
+    }
+
+    private static final String INHERITED = "\u0000\u0000inherited\u0000\u0000";
+
+    // check the section for the inherited marker without copying the section buffer
+    private static boolean __inherits(CharSequence s) {
+        if (s instanceof StringBuilder) return ((StringBuilder) s).indexOf(INHERITED) > -1;
+        return s.toString().contains(INHERITED);
+    }
+
+    // replace the inherited markers in the section with the default section content
+    private static CharSequence __inherit(CharSequence s, CharSequence s0) {
+        return s.toString().replace(INHERITED, null == s0 ? "" : s0);
     }
 
     /**
@@ -380,7 +442,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @param name
      */
     protected void __pLayoutSectionInherited(String name) {
-        p("\u0000\u0000inherited\u0000\u0000");
+        p(INHERITED);
     }
 
     /**
@@ -390,6 +452,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return section data by name
      */
     protected RawData __getSection(String name) {
+        __awaitChild();
         return S.raw(layoutSections.get(name));
     }
 
@@ -399,20 +462,65 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return layout content
      */
     protected RawData __getSection() {
-        return S.raw(S.isEmpty(layoutContent) ? layoutSections.get("__CONTENT__") : layoutContent);
+        __awaitChild();
+        return S.raw(__layoutContent());
+    }
+
+    private CharSequence __layoutContent() {
+        return 0 == layoutContent.length() ? layoutSections.get("__CONTENT__") : layoutContent;
     }
 
     /**
      * Print the layout content. Not to be used in user application or template
      */
     protected void __pLayoutContent() {
-        p(__getSection());
+        __awaitChild();
+        __pSegment(__layoutContent());
     }
 
-    private void addAllLayoutSections(Map<String, String> sections) {
+    private void addAllLayoutSections(Map<String, CharSequence> sections) {
         if (null != sections) layoutSections.putAll(sections);
     }
 
+    // chunk size used to write a layout segment to the writer or output stream
+    private static final int SEGMENT_CHUNK = 8192;
+
+    /*
+     * Print a layout segment. The segment is appended to the buffer or written
+     * to the writer or output stream in chunks, without being copied into a string
+     */
+    private void __pSegment(CharSequence s) {
+        if (null == s || 0 == s.length()) return;
+        if (s instanceof String || null == __buffer) {
+            p(s);
+            return;
+        }
+        if (appendToBuffer()) {
+            __buffer.append(s);
+        }
+        if (appendToOutputStream() || appendToWriter()) {
+            __writeSink(s);
+        }
+    }
+
+    private void __writeSink(CharSequence s) {
+        try {
+            for (int i = 0, len = s.length(); i < len; ) {
+                int end = Math.min(len, i + SEGMENT_CHUNK);
+                if (end < len && Character.isHighSurrogate(s.charAt(end - 1))) end++;
+                String chunk = s.subSequence(i, end).toString();
+                if (null != os) {
+                    os.write(chunk.getBytes());
+                } else {
+                    w.write(chunk);
+                }
+                i = end;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void addAllRenderProperties(Map<String, Object> properties) {
         if (null != properties) renderProperties.putAll(properties);
     }
@@ -440,7 +548,10 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     @Override
     public ITemplate __cloneMe(RythmEngine engine, ITemplate caller) {
         if (null == engine) throw new NullPointerException();
+        Map<String, Class> types = __argTypes().types();
         TemplateBase tmpl = __internalClone();
+        // a clone must not share the builder chain of the template it is cloned from
+        tmpl.__chainTo(null != caller ? (TextBuilder) caller : __caller);
         if (tmpl.__parent != null) {
             tmpl.__parent = (TemplateBase) tmpl.__parent.__cloneMe(engine, caller);
         }
@@ -448,11 +559,12 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         //tmpl.__templateClass = __templateClass;
         tmpl.__ctx = new __Context();
         //if (null != buffer) tmpl.__buffer = buffer;
-        if (null != __buffer) tmpl.__buffer = new StringBuilder();
+        if (null != __buffer) tmpl.setSelfOut(new StringBuilder());
         tmpl.__renderArgs = new HashMap<String, Object>(__renderArgs.size());
+        tmpl.__boundArgs = 0L;
         //tmpl.layoutContent = "";
-        tmpl.layoutSections = new HashMap<String, String>();
-        tmpl.layoutSections0 = new HashMap<String, String>();
+        tmpl.layoutSections = new HashMap<String, CharSequence>();
+        tmpl.layoutSections0 = new HashMap<String, CharSequence>();
         tmpl.renderProperties = new HashMap<String, Object>();
         //tmpl.section = null;
         //tmpl.tmpCaller = null;
@@ -461,16 +573,13 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         //tmpl.w = null;
         //tmpl.os = null;
         if (null != caller) {
-            tmpl.__caller = (TextBuilder) caller;
-            Map<String, Object> callerRenderArgs = new HashMap<String, Object>(((TemplateBase) caller).__renderArgs);
-            Map<String, Class> types = tmpl.__renderArgTypeMap();
-            for (Map.Entry<String, Object> entry : callerRenderArgs.entrySet()) {
-                if (tmpl.__renderArgs.containsKey(entry.getKey())) continue;
-                Object o = entry.getValue();
+            // only the declared render args are bound from the caller scope, the
+            // others are looked up along the caller chain on demand, see __getRenderArg
+            TemplateBase scope = (TemplateBase) caller;
+            for (Map.Entry<String, Class> entry : types.entrySet()) {
+                Object o = scope.__getRenderArg(entry.getKey());
                 if (null == o || __isDefVal(o)) continue;
-                Class<?> c = types.get(entry.getKey());
-
-                if (null == c || c.isAssignableFrom(o.getClass())) {
+                if (entry.getValue().isAssignableFrom(o.getClass())) {
                     tmpl.__setRenderArg(entry.getKey(), o);
                 }
             }
@@ -479,6 +588,105 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return tmpl;
     }
 
+    // the render arg types of the template class, shared by the clones
+    private RenderArgTypes __argTypes;
+
+    private RenderArgTypes __argTypes() {
+        RenderArgTypes types = __argTypes;
+        if (null == types) {
+            types = new RenderArgTypes(__renderArgTypeMap());
+            __argTypes = types;
+        }
+        return types;
+    }
+
+    /*
+     * Return the render args of this template merged with the render args
+     * visible along the caller chain
+     */
+    private Map<String, Object> __scopeArgs() {
+        __syncRenderArgs();
+        if (null == __caller) return __renderArgs;
+        return new ScopeArgs(Collections.<String, Object>emptyMap());
+    }
+
+    /*
+     * The value of the render arg visible from this template: the nearest one
+     * along the caller chain which is not a default value, or the farthest
+     * default value if there is no such one
+     */
+    private Object __scopeArg(Object name) {
+        Object val = null;
+        for (TemplateBase t = this; null != t; t = t.__caller()) {
+            t.__syncRenderArgs();
+            Map<String, Object> args = t.__renderArgs;
+            if (args.containsKey(name)) {
+                val = args.get(name);
+                if (!__isDefVal(val)) break;
+            }
+        }
+        return val;
+    }
+
+    /*
+     * A view of the render args visible from this template with the given
+     * variables on top. Args are looked up along the caller chain on demand
+     * instead of copying the whole chain for each expression evaluated. Only
+     * iterating the view merges the chain
+     */
+    private final class ScopeArgs extends AbstractMap<String, Object> {
+        private final Map<String, Object> vars;
+        private Map<String, Object> locals;
+
+        ScopeArgs(Map<String, Object> vars) {
+            this.vars = vars;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if ((null != locals && locals.containsKey(key)) || vars.containsKey(key)) return true;
+            for (TemplateBase t = TemplateBase.this; null != t; t = t.__caller()) {
+                t.__syncRenderArgs();
+                if (t.__renderArgs.containsKey(key)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (null != locals && locals.containsKey(key)) return locals.get(key);
+            if (vars.containsKey(key)) return vars.get(key);
+            return __scopeArg(key);
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            // variables assigned by the expression evaluated
+            if (null == locals) {
+                locals = new HashMap<String, Object>();
+            }
+            return locals.put(key, value);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Set<String> keys = new HashSet<String>();
+            for (TemplateBase t = TemplateBase.this; null != t; t = t.__caller()) {
+                t.__syncRenderArgs();
+                keys.addAll(t.__renderArgs.keySet());
+            }
+            keys.addAll(vars.keySet());
+            if (null != locals) {
+                keys.addAll(locals.keySet());
+            }
+            Map<String, Object> m = new HashMap<String, Object>(keys.size());
+            for (String key : keys) {
+                m.put(key, get(key));
+            }
+            return m.entrySet();
+        }
+    }
+
     /**
      * Not to be used in user application or template
      */
@@ -569,8 +777,22 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      */
     @Override
     public final String render() {
+        return __renderLifecycle(null);
+    }
+
+    /*
+     * The render lifecycle, renders into the sink specified and return null if
+     * the sink is not null, otherwise return the rendered result
+     */
+    private String __renderLifecycle(StringBuilder sink) {
         RythmEngine engine = __engine();
         boolean engineSet = RythmEngine.set(engine);
+        StringBuilder own = __buffer;
+        int mark = 0;
+        if (null != sink) {
+            mark = sink.length();
+            setSelfOut(sink);
+        }
         try {
             long l = 0l;
             boolean logTime = __logTime();
@@ -585,7 +807,11 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
                 l = System.currentTimeMillis();
             }
             try {
-                String s = __internalRender();
+                if (null != sink) {
+                    __internalBuild();
+                    return null;
+                }
+                String s = __memoized() ? __memoizedRender(engine) : __internalRender();
                 return s;
             } finally {
                 __triggerRenderEvent(RythmEvents.RENDERED, engine);
@@ -594,15 +820,136 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
                 }
             }
         } catch (ClassReloadException e) {
+            if (null != sink) {
+                sink.setLength(mark);
+                setSelfOut(own);
+            }
             engine.restart(e);
-            return render();
+            return __renderLifecycle(sink);
         } finally {
+            if (null != sink) {
+                setSelfOut(own);
+            }
             if (engineSet) {
                 RythmEngine.clear();
             }
         }
     }
 
+    /**
+     * Render a section or an inline tag without arguments of the template. This method
+     * is usually called from API defined in {@link RythmEngine}
+     * <p/>
+     * <p>The template is built until the section is complete, and the layout template is
+     * built only if the section is not found or inherits the default content of the layout</p>
+     */
+    @Override
+    public final String renderSection(String section) {
+        if (null == section) throw new NullPointerException("section name cannot be null");
+        RythmEngine engine = __engine();
+        boolean engineSet = RythmEngine.set(engine);
+        try {
+            __triggerRenderEvent(RythmEvents.ON_RENDER, engine);
+            __setup();
+            try {
+                if (null != __templateClass && __templateClass.hasInlineTag(section)) {
+                    String s = __renderInlineTag(section);
+                    if (null != s) return s;
+                }
+                CharSequence s = __renderSection(section);
+                return null == s ? "" : s.toString();
+            } finally {
+                __triggerRenderEvent(RythmEvents.RENDERED, engine);
+            }
+        } catch (ClassReloadException e) {
+            engine.restart(e);
+            return renderSection(section);
+        } finally {
+            if (engineSet) {
+                RythmEngine.clear();
+            }
+        }
+    }
+
+    /*
+     * Call the inline tag without arguments, return null if the tag requires arguments
+     */
+    private String __renderInlineTag(String name) {
+        java.lang.reflect.Method m;
+        try {
+            m = getClass().getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        final String code = secureCode;
+        Sandbox.enterRestrictedZone(code);
+        try {
+            __internalInit();
+            return S.str(m.invoke(this));
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RythmException) throw (RythmException) t;
+            handleThrowable(t);
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } finally {
+            __finally();
+            Sandbox.leaveCurZone(code);
+        }
+    }
+
+    /*
+     * Build this template until the section is complete, and look for the
+     * section in the layout template if required
+     */
+    private CharSequence __renderSection(String name) {
+        CharSequence s = layoutSections.get(name);
+        if (null == s || __inherits(s)) {
+            __targetSection = name;
+            try {
+                __internalBuild();
+            } catch (SectionRendered e) {
+                // the rest of the template is not needed
+            } finally {
+                __targetSection = null;
+            }
+            s = layoutSections.get(name);
+        }
+        boolean inherits = null != s && __inherits(s);
+        CharSequence s0 = layoutSections0.get(name);
+        if (null == s0 && (null == s || inherits) && __hasParent()) {
+            __handOver();
+            return __parent.__renderSection(name);
+        }
+        if (null == s) return s0;
+        return inherits ? __inherit(s, s0) : s;
+    }
+
+    /**
+     * Render into the buffer specified instead of the buffer of this template, e.g. the
+     * buffer of the template calling this tag, so the output is not copied into a string.
+     * Return <code>false</code> if this template must render into its own buffer, i.e. it
+     * extends a layout template, its output is memoized or it writes to a writer or output
+     * stream. Not to be used in user application or template
+     *
+     * @param sink the buffer to render into
+     * @return <code>true</code> if rendered into the buffer
+     */
+    protected final boolean __renderInto(StringBuilder sink) {
+        if (null == sink || __hasParent() || __memoized() || null != os || null != w) return false;
+        __renderLifecycle(sink);
+        return true;
+    }
+
+    /*
+     * Return the buffer the tags called from this template can render into,
+     * or null if the output is written to the writer or output stream directly
+     */
+    StringBuilder __tagSink() {
+        return appendToBuffer() ? __buffer : null;
+    }
+
     private String secureCode = null;
 
     @Override
@@ -745,6 +1092,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
             if (__logTime()) {
                 __logger.debug("<<<<<<<<<<<< [%s] build: %sms", getClass().getName(), System.currentTimeMillis() - l);
             }
+        } catch (SectionRendered e) {
+            throw e;
         } catch (RythmException e) {
             throw e;
         } catch (Throwable e) {
@@ -768,19 +1117,161 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * Not to be used in user application or template
      */
     protected String __internalRender() {
+        if (__hasParent() && __earlyFlush()) {
+            // the layout template renders first and builds this template
+            // when the content of this template is referenced
+            __loadExtendingArgs();
+            __syncRenderArgs();
+            __parent.__setRenderArgs(__renderArgs);
+            __parent.__pendingChild = this;
+            __passSink();
+            return __parent.render();
+        }
         __internalBuild();
+        __awaitChild();
         if (__hasParent()) {
-            __parent.__setLayoutContent(toString());
-            __parent.addAllLayoutSections(layoutSections);
-            __parent.addAllRenderProperties(renderProperties);
-            __parent.__setRenderArgs(__renderArgs);
-            //__parent.__renderArgs.putAll(__renderArgs);
+            __handOver();
+            __passSink();
             return __parent.render();
         } else {
             return toString();
         }
     }
 
+    // the template extending this layout template, to be built when its content is referenced
+    private TemplateBase __pendingChild;
+
+    private boolean __earlyFlush() {
+        return (null != os || null != w) && !captured() && __engine().conf().layoutEarlyFlushEnabled();
+    }
+
+    /*
+     * Build the pending extending template. The output rendered so far is
+     * flushed first, so it reaches the client while the extending template renders
+     */
+    private void __awaitChild() {
+        TemplateBase child = __pendingChild;
+        if (null == child) return;
+        __pendingChild = null;
+        try {
+            if (null != os && !captured()) os.flush();
+            else if (null != w && !captured()) w.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        child.__internalBuild();
+        child.__handOver();
+    }
+
+    // pass the content, sections, properties and args to the layout template
+    private void __handOver() {
+        __parent.__setLayoutContent(null == __buffer ? toString() : __buffer);
+        __parent.addAllLayoutSections(layoutSections);
+        __parent.addAllRenderProperties(renderProperties);
+        __syncRenderArgs();
+        __parent.__setRenderArgs(__renderArgs);
+    }
+
+    // the layout template writes the final output
+    private void __passSink() {
+        if (captured()) return;
+        if (null != os) __parent.__setOutputStream(os);
+        else if (null != w) __parent.__setWriter(w);
+    }
+
+    /**
+     * Whether the whole output of this template is cached, i.e. the template
+     * declares <code>@memoize</code>. Not to be used in user application or template
+     */
+    protected boolean __memoized() {
+        return false;
+    }
+
+    /**
+     * Return the ttl in seconds of the memoized output. Not to be used in user
+     * application or template
+     */
+    protected int __memoizeTTL() {
+        return 0;
+    }
+
+    /**
+     * Return the declared render arg values used as the key of the memoized
+     * output. Not to be used in user application or template
+     */
+    protected Object[] __memoizeArgs() {
+        return new Object[0];
+    }
+
+    private static final String MEMOIZED_KEY = "__RYTHM_MEMOIZED_";
+
+    /*
+     * Output the memoized result keyed by the render args, locale and code type,
+     * or render this template and cache the result if not found. When rendering
+     * to an output stream or writer, the result is captured before it is cached
+     */
+    private String __memoizedRender(RythmEngine engine) {
+        if (engine.conf().cacheDisabled()) {
+            return __internalRender();
+        }
+        Object[] args0 = __memoizeArgs();
+        Object[] args = new Object[args0.length + 2];
+        args[0] = __curLocale();
+        args[1] = __curCodeType().toString();
+        System.arraycopy(args0, 0, args, 2, args0.length);
+        String key = __fragmentKey(MEMOIZED_KEY);
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        String metricsKey = null == metrics ? null : getClass().getName();
+        // a template extending a layout does not write to the writer or output
+        // stream itself, thus check the writer and output stream directly
+        boolean streaming = (null != os || null != w) && !captured();
+        String s = __memoizedOutput(engine, key, args, streaming);
+        if (null != s) {
+            if (null != metrics) {
+                metrics.hit(metricsKey);
+            }
+            return s;
+        }
+        if (null != metrics) {
+            metrics.miss(metricsKey);
+        }
+        if (streaming) {
+            StringBuilder out = __buffer;
+            setSelfOut(new StringBuilder());
+            try {
+                s = __internalRender();
+            } finally {
+                setSelfOut(out);
+            }
+        } else {
+            s = __internalRender();
+        }
+        engine.cache(key, s, __memoizeTTL(), args);
+        if (null != metrics) {
+            metrics.stored(metricsKey, s);
+        }
+        if (streaming) {
+            __writeSink(s);
+            return toString();
+        }
+        return s;
+    }
+
+    private String __memoizedOutput(RythmEngine engine, String key, Object[] args, boolean streaming) {
+        if (streaming && null != os) {
+            return engine.writeCached(os, key, args) ? toString() : null;
+        }
+        Serializable cached = engine.cached(key, args);
+        if (null == cached) {
+            return null;
+        }
+        if (streaming) {
+            __writeSink(cached.toString());
+            return toString();
+        }
+        return cached.toString();
+    }
+
     /**
      * The {@link org.rythmengine.internal.CodeBuilder} will generate the
      * implementation of this method usually
@@ -845,7 +1336,10 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     @Override
     public ITemplate __setRenderArg(JSONWrapper jsonData) {
-        if (jsonData.isArray()) {
+        Reader json = jsonData.stream();
+        if (null != json) {
+            JSONArgBinder.bind(this, __argTypes(), json);
+        } else if (jsonData.isArray()) {
             setJSONArray(jsonData.getArray());
         } else {
             setJSONObject(jsonData.getObject());
@@ -979,6 +1473,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
 
     @Override
     public <T> T __getRenderArg(String name) {
+        __syncRenderArgs();
         Object val = __renderArgs.get(name);
         //if (null == val) return null;
         if (null != __caller) {
@@ -1078,7 +1573,8 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
      * @return a render property
      */
     protected final <T> T __getRenderProperty(String name, T def) {
-        Object o = __renderArgs.get(name);
+        __awaitChild();
+        Object o = __getRenderArg(name);
         return (T) (__isDefVal(o) ? def : o);
     }
 
@@ -1163,185 +1659,277 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return __ctx.currentEscape();
     }
 
+    private boolean captured() {
+        return __buffer != outBuffer;
+    }
+
     private boolean appendToBuffer() {
-        return null != __parent || (null == w && null == os);
+        return !__toSink();
     }
 
     private boolean appendToWriter() {
-        return (null == __parent && null != w);
+        return null != w && __toSink();
     }
 
     private boolean appendToOutputStream() {
-        return (null == __parent && null != os);
+        return null != os && __toSink();
     }
 
-    @Override
-    protected void __append(StrBuf wrapper) {
-        if (appendToBuffer()) {
-            super.__append(wrapper);
+    /**
+     * Output the item cached with the key and args. When rendering to an output
+     * stream, the item is written to the stream directly.
+     * <p/>
+     * <p>If the item is missing, only one thread is allowed to render it while
+     * other threads wait for the item or, if the item is stale, serve the stale
+     * item. The caller must call {@link #__releaseCacheFlight(String, Object...)}
+     * after rendering the item when this method returns <code>false</code></p>
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     * @return <code>true</code> if the cached item is output, or <code>false</code>
+     * if the caller shall render the item
+     */
+    protected boolean __pCached(String key, Object... args) {
+        RythmEngine engine = __engine();
+        if (engine.conf().cacheDisabled()) {
+            return false;
         }
-        if (null == os && null == w) return;
+        boolean hit = __pCached(engine, __fragmentKey(key), args);
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        if (null != metrics) {
+            if (hit) {
+                metrics.hit(key);
+            } else {
+                metrics.miss(key);
+            }
+        }
+        return hit;
+    }
 
-        if (appendToOutputStream()) {
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    private boolean __pCached(RythmEngine engine, String key, Object... args) {
+        if (engine.cacheStale(key, args) && engine.acquireCacheFlight(key, false, args)) {
+            // render the stale item again
+            return false;
+        }
+        if (__outputCached(engine, key, args)) {
+            return true;
+        }
+        if (engine.acquireCacheFlight(key, true, args)) {
+            return false;
+        }
+        // the item shall be there after waiting for another thread
+        return __outputCached(engine, key, args);
+    }
+
+    /**
+     * Return the item cached with the key and args, the same as {@link #__pCached(String, Object...)}
+     * except that the item is returned instead of output, e.g. to be assigned or escaped.
+     * The caller must call {@link #__releaseCacheFlight(String, Object...)} after rendering
+     * the item when this method returns <code>null</code>
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     * @return the cached item or <code>null</code> if the caller shall render the item
+     */
+    protected Serializable __cachedFlight(String key, Object... args) {
+        RythmEngine engine = __engine();
+        if (engine.conf().cacheDisabled()) {
+            return null;
+        }
+        String fragmentKey = __fragmentKey(key);
+        Serializable s = null;
+        if (!engine.cacheStale(fragmentKey, args) || !engine.acquireCacheFlight(fragmentKey, false, args)) {
+            s = engine.cached(fragmentKey, args);
+            if (null == s && !engine.acquireCacheFlight(fragmentKey, true, args)) {
+                // the item shall be there after waiting for another thread
+                s = engine.cached(fragmentKey, args);
             }
-        } else if (appendToWriter()) {
-            try {
-                w.write(wrapper.toString());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        }
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        if (null != metrics) {
+            if (null != s) {
+                metrics.hit(key);
+            } else {
+                metrics.miss(key);
             }
         }
+        return s;
     }
 
-    @Override
-    protected void __append(Object o) {
-        String oStr = o.toString();
-        if (appendToBuffer()) super.__append(oStr);
-        if (null == os && null == w) return;
+    /**
+     * Return the item cached with the key and args
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     * @return the cached item or <code>null</code> if not found
+     */
+    protected Serializable __cached(String key, Object... args) {
+        RythmEngine engine = __engine();
+        Serializable s = engine.cached(__fragmentKey(key), args);
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        if (null != metrics && !engine.conf().cacheDisabled()) {
+            if (null != s) {
+                metrics.hit(key);
+            } else {
+                metrics.miss(key);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Cache the rendered item with the key and args for ttl seconds
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param o
+     * @param ttl
+     * @param args
+     * @see RythmEngine#cache(String, Object, int, Object...)
+     */
+    protected void __cache(String key, Object o, int ttl, Object... args) {
+        RythmEngine engine = __engine();
+        if (engine.conf().cacheDisabled()) {
+            return;
+        }
+        engine.cache(__fragmentKey(key), o, ttl, args);
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        if (null != metrics) {
+            metrics.stored(key, null == o ? "" : o.toString());
+        }
+    }
 
-        StrBuf wrapper = new StrBuf(oStr);
+    /**
+     * Release the flight acquired by {@link #__pCached(String, Object...)}
+     * or {@link #__cachedFlight(String, Object...)}
+     * <p/>
+     * <p>Not an API for user application</p>
+     *
+     * @param key
+     * @param args
+     */
+    protected void __releaseCacheFlight(String key, Object... args) {
+        __engine().releaseCacheFlight(__fragmentKey(key), args);
+    }
+
+    /*
+     * Prefix the fragment key with the namespace of the template class, so
+     * the fragments are orphaned when the template class is reloaded
+     */
+    private String __fragmentKey(String key) {
+        TemplateClass tc = __getTemplateClass(true);
+        return null == tc ? key : tc.fragmentNamespace() + key;
+    }
+
+    private boolean __outputCached(RythmEngine engine, String key, Object... args) {
         if (appendToOutputStream()) {
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            return engine.writeCached(os, key, args);
+        }
+        Serializable s = engine.cached(key, args);
+        if (null == s) {
+            return false;
+        }
+        p(s);
+        return true;
+    }
+
+    /*
+     * Whether the output goes to the writer or output stream instead of the buffer,
+     * i.e. a writer or output stream is attached, the buffer is not swapped out and
+     * this template does not extend a layout template
+     */
+    private boolean __toSink() {
+        return sinkAttached && null == __parent && __buffer == outBuffer;
+    }
+
+    private void __writeOut(String s) {
+        try {
+            if (null != os) {
+                os.write(s.getBytes());
+            } else {
+                w.write(s);
             }
-        } else if (appendToWriter()) {
-            try {
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void __append(StrBuf wrapper) {
+        if (!__toSink()) {
+            __buffer.append(wrapper.toString());
+            return;
+        }
+        try {
+            if (null != os) {
+                os.write(wrapper.toBinary());
+            } else {
                 w.write(wrapper.toString());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
     @Override
-    protected void __append(char c) {
-        if (appendToBuffer()) super.__append(c);
-        if (null == os && null == w) return;
+    protected void __append(Object o) {
+        String s = o.toString();
+        if (__toSink()) __writeOut(s);
+        else __buffer.append(s);
+    }
 
-        if (appendToOutputStream()) {
-            try {
+    @Override
+    protected void __append(char c) {
+        if (!__toSink()) {
+            __buffer.append(c);
+            return;
+        }
+        try {
+            if (null != os) {
                 os.write(c);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
+            } else {
                 w.write(c);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
     @Override
     protected void __append(int i) {
-        if (appendToBuffer()) super.__append(i);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(i));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(i));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        if (__toSink()) __writeOut(String.valueOf(i));
+        else __buffer.append(i);
     }
 
     @Override
     protected void __append(long l) {
-        if (appendToBuffer()) super.__append(l);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(l));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(l));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        if (__toSink()) __writeOut(String.valueOf(l));
+        else __buffer.append(l);
     }
 
     @Override
     protected void __append(float f) {
-        if (appendToBuffer()) super.__append(f);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(f));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(f));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        if (__toSink()) __writeOut(String.valueOf(f));
+        else __buffer.append(f);
     }
 
     @Override
     protected void __append(double d) {
-        if (appendToBuffer()) super.__append(d);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(d));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(d));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        if (__toSink()) __writeOut(String.valueOf(d));
+        else __buffer.append(d);
     }
 
     @Override
     protected void __append(boolean b) {
-        if (appendToBuffer()) super.__append(b);
-        if (null == os && null == w) return;
-
-        if (appendToOutputStream()) {
-            StrBuf wrapper = new StrBuf(String.valueOf(b));
-            try {
-                os.write(wrapper.toBinary());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        } else if (appendToWriter()) {
-            try {
-                w.write(String.valueOf(b));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        if (__toSink()) __writeOut(String.valueOf(b));
+        else __buffer.append(b);
     }
 
     // ---- overwrite TemplateBuilder methods
@@ -1398,8 +1986,7 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
     }
 
     protected final Object __eval(String expr) {
-        Map<String, Object> ctx = new HashMap<String, Object>(__renderArgs);
-        ctx.putAll(itrVars());
+        Map<String, Object> ctx = new ScopeArgs(itrVars());
         try {
             Object retval = __engine().eval(expr, this, ctx);
             return retval;
@@ -1449,6 +2036,16 @@ public abstract class TemplateBase extends TemplateBuilder implements ITemplate
         return i18n.getMessage(TemplateBase.this, key, args);
     }
 
+    protected String __i18n(MessageHandle handle, Object... args) {
+        if (i18n == null) {
+            i18n = __engine().conf().i18nMessageResolver();
+        }
+        if (II18nMessageResolver.DefaultImpl.INSTANCE != i18n) {
+            return i18n.getMessage(TemplateBase.this, handle.key(), args);
+        }
+        return handle.format(TemplateBase.this, args);
+    }
+
     private Stack<F.T2<String, Object>> itrVars = new Stack<F.T2<String, Object>>();
 
     protected void __pushItrVar(String name, Object val) {
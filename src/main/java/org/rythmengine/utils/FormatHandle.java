@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import org.rythmengine.template.ITemplate;
+
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A handle to the formats of a literal pattern. The code generated for
+ * <code>@x.format("pattern")</code> keeps the handle in a static field, so
+ * each thread uses the format it last created directly as long as the locale
+ * does not change
+ * <p/>
+ * <p>The <code>format</code> methods behave the same as the corresponding
+ * <code>S.format</code> methods</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public final class FormatHandle {
+
+    private static final class Slot {
+        private Locale locale;
+        private String timezone;
+        private NumberFormat number;
+        private DateFormat date;
+    }
+
+    private final String pattern;
+    private final ThreadLocal<Slot> slot = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+    };
+
+    public FormatHandle(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * See {@link S#format(org.rythmengine.template.ITemplate, Number, String)}
+     */
+    public String format(ITemplate template, Number number) {
+        if (null == number) number = 0;
+        Locale locale = I18N.locale(template);
+        Slot s = slot.get();
+        if (null == s.number || !locale.equals(s.locale)) {
+            s.number = Formats.number(pattern, locale);
+            s.date = null;
+            s.locale = locale;
+        }
+        return s.number.format(number);
+    }
+
+    /**
+     * See {@link S#format(org.rythmengine.template.ITemplate, java.util.Date, String)}
+     */
+    public String format(ITemplate template, Date date) {
+        if (null == date) date = new Date(0);
+        Locale locale = I18N.locale(template);
+        String timezone = TimeZone.getDefault().getID();
+        Slot s = slot.get();
+        if (null == s.date || !locale.equals(s.locale) || !timezone.equals(s.timezone)) {
+            s.date = Formats.date(pattern, locale, timezone);
+            s.timezone = timezone;
+            if (!locale.equals(s.locale)) {
+                s.number = null;
+                s.locale = locale;
+            }
+        }
+        return s.date.format(date);
+    }
+
+    /**
+     * See {@link S#format(org.rythmengine.template.ITemplate, Object, String)}
+     */
+    public String format(ITemplate template, Object o) {
+        if (null == o) return "";
+        if (o instanceof Date) return format(template, (Date) o);
+        if (o instanceof Number) return format(template, (Number) o);
+        return S.format(template, o, pattern);
+    }
+}
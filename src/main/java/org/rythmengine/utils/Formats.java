@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.utils;
+
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Cache the number and date formats used by {@link S#format(org.rythmengine.template.ITemplate, Object, String, java.util.Locale, String)}
+ * and {@link S#formatCurrency(org.rythmengine.template.ITemplate, Object, String, java.util.Locale)}
+ * by type, pattern and locale.
+ * <p/>
+ * <p>The formats of <code>java.text</code> are not thread safe, thus each thread keeps its own
+ * instances. A format returned by this class must not be shared with other threads</p>
+ * <p/>
+ * <p>Not an API for user application</p>
+ */
+public final class Formats {
+
+    private Formats() {
+    }
+
+    // a thread drops its formats once it has collected this many of them, so that
+    // patterns built at runtime won't make the cache grow without limit
+    private static final int MAX_FORMATS = 512;
+
+    private static final ThreadLocal<Map<Key, Format>> formats = new ThreadLocal<Map<Key, Format>>() {
+        @Override
+        protected Map<Key, Format> initialValue() {
+            return new HashMap<Key, Format>();
+        }
+    };
+
+    private enum Type {
+        NUMBER, DATE, CURRENCY
+    }
+
+    private static final class Key {
+        private final Type type;
+        private final String pattern;
+        private final Locale locale;
+        private final String option;
+        private final int hash;
+
+        Key(Type type, String pattern, Locale locale, String option) {
+            this.type = type;
+            this.pattern = pattern;
+            this.locale = locale;
+            this.option = option;
+            this.hash = HashCode.hc(type, pattern, locale, option);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return type == that.type && S.eq(pattern, that.pattern) && locale.equals(that.locale) && S.eq(option, that.option);
+            }
+            return false;
+        }
+    }
+
+    private static Format get(Key key) {
+        return formats.get().get(key);
+    }
+
+    private static void put(Key key, Format format) {
+        Map<Key, Format> m = formats.get();
+        if (m.size() >= MAX_FORMATS) {
+            m.clear();
+        }
+        m.put(key, format);
+    }
+
+    /**
+     * Return the number format of the pattern and locale specified
+     *
+     * @param pattern the decimal format pattern, or <code>null</code> for the number format of the locale
+     * @param locale  the locale
+     * @return the number format confined to the current thread
+     */
+    public static NumberFormat number(String pattern, Locale locale) {
+        Key key = new Key(Type.NUMBER, pattern, locale, null);
+        NumberFormat nf = (NumberFormat) get(key);
+        if (null == nf) {
+            if (null == pattern) nf = NumberFormat.getNumberInstance(locale);
+            else nf = new DecimalFormat(pattern, new DecimalFormatSymbols(locale));
+            put(key, nf);
+        }
+        return nf;
+    }
+
+    /**
+     * Return the date format of the pattern, locale and timezone specified
+     *
+     * @param pattern  the date format pattern, or <code>null</code> for the default date format of the locale
+     * @param locale   the locale
+     * @param timezone the timezone ID, or <code>null</code> for the default timezone
+     * @return the date format confined to the current thread
+     */
+    public static DateFormat date(String pattern, Locale locale, String timezone) {
+        if (null == timezone) {
+            timezone = TimeZone.getDefault().getID();
+        }
+        Key key = new Key(Type.DATE, pattern, locale, timezone);
+        DateFormat df = (DateFormat) get(key);
+        if (null == df) {
+            if (null == pattern) df = DateFormat.getDateInstance(DateFormat.DEFAULT, locale);
+            else df = new SimpleDateFormat(pattern, locale);
+            df.setTimeZone(TimeZone.getTimeZone(timezone));
+            put(key, df);
+        }
+        return df;
+    }
+
+    /**
+     * Return the currency format of the locale and currency specified
+     *
+     * @param locale   the locale
+     * @param currency the currency, or <code>null</code> if the <code>symbol</code> shall be used
+     * @param symbol   the currency symbol used when <code>currency</code> is <code>null</code>
+     * @return the currency format confined to the current thread
+     */
+    public static NumberFormat currency(Locale locale, Currency currency, String symbol) {
+        Key key = new Key(Type.CURRENCY, null == currency ? symbol : currency.getCurrencyCode(), locale, null == currency ? "symbol" : null);
+        NumberFormat nf = (NumberFormat) get(key);
+        if (null == nf) {
+            nf = NumberFormat.getCurrencyInstance(locale);
+            if (null != currency) {
+                nf.setCurrency(currency);
+                nf.setMaximumFractionDigits(currency.getDefaultFractionDigits());
+            } else {
+                DecimalFormatSymbols dfs = new DecimalFormatSymbols();
+                dfs.setCurrencySymbol(symbol);
+                ((DecimalFormat) nf).setDecimalFormatSymbols(dfs);
+            }
+            put(key, nf);
+        }
+        return nf;
+    }
+}
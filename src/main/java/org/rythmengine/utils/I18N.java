@@ -7,15 +7,15 @@ package org.rythmengine.utils;
 
 import org.rythmengine.RythmEngine;
 import org.rythmengine.conf.RythmConfigurationKey;
-import org.rythmengine.internal.CacheKey;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.template.ITemplate;
 
-import java.util.HashMap;
+import java.util.ListResourceBundle;
 import java.util.Locale;
-import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * I18N utils
@@ -60,31 +60,46 @@ public class I18N {
         return bundle(null, name, null);
     }
 
-    private static final Map<String, ResourceBundle> bundleCache = new HashMap<String, ResourceBundle>();
+    // bundles are cached by name and locale, missing bundles are cached as MISSING
+    private static final ConcurrentMap<String, ResourceBundle> bundleCache = new ConcurrentHashMap<String, ResourceBundle>();
+
+    private static final ResourceBundle MISSING = new ListResourceBundle() {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[0][];
+        }
+    };
+
+    /**
+     * Clear the resource bundles cached, including the missing ones, so that
+     * changed or added bundles are loaded again. Called when the engine is
+     * restarted, reloads template classes or shuts down
+     * <p/>
+     * <p>Not an API for user application</p>
+     */
+    public static void clearBundleCache() {
+        bundleCache.clear();
+        ResourceBundle.clearCache(I18N.class.getClassLoader());
+    }
 
     public static ResourceBundle bundle(ITemplate template, String name, Locale locale) {
         if (null == name) throw new NullPointerException();
-        String cacheKey = null;
-        ResourceBundle retval = null;
         if (null == locale) {
             locale = locale(template);
         }
-        RythmEngine engine = null == template ? RythmEngine.get() : template.__engine(); 
-        if (null != engine && null != locale) {
-            cacheKey = CacheKey.i18nBundle(engine, locale);
-            retval = bundleCache.get(cacheKey);
-        }
-
+        if (null == locale) locale = RythmConfigurationKey.I18N_LOCALE.getDefaultConfiguration();
+        String cacheKey = name + "/" + locale;
+        ResourceBundle retval = bundleCache.get(cacheKey);
         if (null == retval) {
             try {
-                if (null == locale) locale = RythmConfigurationKey.I18N_LOCALE.getDefaultConfiguration();
                 retval = ResourceBundle.getBundle(name, locale);
-                bundleCache.put(cacheKey, retval);
             } catch (RuntimeException e) {
                 logger.warn(e, "Error getting resource bundle by name %s", name);
+                retval = MISSING;
             }
+            bundleCache.put(cacheKey, retval);
         }
-        return retval;
+        return MISSING == retval ? null : retval;
     }
 
 }
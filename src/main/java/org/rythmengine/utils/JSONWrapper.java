@@ -9,6 +9,11 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +22,9 @@ import java.util.Map;
  */
 public class JSONWrapper {
     private JSON j_;
+    private Reader r_;
+    // whether the JSON stream has been handed out to be bound to a template
+    private boolean consumed;
 
     /**
      * Construct a JSONWrapper with a JSON string. If the string is not valid JSON, then
@@ -39,13 +47,67 @@ public class JSONWrapper {
         }
     }
 
+    /**
+     * Construct a JSONWrapper with a JSON stream. The stream is not parsed here,
+     * when the wrapper is passed to a template as render args the JSON data is
+     * deserialized into the declared render arg types as it is read.
+     * <p/>
+     * <p>The wrapper can be used only once, the stream is closed after it is read</p>
+     *
+     * @param reader the JSON stream
+     */
+    public JSONWrapper(Reader reader) {
+        if (null == reader) throw new NullPointerException();
+        r_ = reader;
+    }
+
+    /**
+     * Return the JSON stream not yet consumed and mark it as consumed, or
+     * <code>null</code> if the JSON data has been parsed. Not an API for
+     * user application
+     *
+     * @return the JSON stream
+     */
+    public synchronized Reader stream() {
+        Reader r = r_;
+        if (null != r) {
+            r_ = null;
+            consumed = true;
+        } else if (consumed) {
+            throw new IllegalStateException("JSON stream has already been consumed, a stream-backed JSONWrapper can be used only once");
+        }
+        return r;
+    }
+
+    private synchronized JSON json() {
+        if (consumed) {
+            throw new IllegalStateException("JSON stream has already been consumed, a stream-backed JSONWrapper can be used only once");
+        }
+        if (null != r_) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[8192];
+            try {
+                for (int n = r_.read(buf); n >= 0; n = r_.read(buf)) {
+                    sb.append(buf, 0, n);
+                }
+                r_.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading JSON stream", e);
+            } finally {
+                r_ = null;
+            }
+            j_ = new JSONWrapper(sb.toString()).j_;
+        }
+        return j_;
+    }
+
     /**
      * Return true if the underline JSON data is an array
      *
      * @return true if the JSON data is an array
      */
     public boolean isArray() {
-        return j_ instanceof JSONArray;
+        return json() instanceof JSONArray;
     }
 
     /**
@@ -57,7 +119,7 @@ public class JSONWrapper {
      * @return the List of objects
      */
     public List<Object> getArray() {
-        return (JSONArray) j_;
+        return (JSONArray) json();
     }
 
     /**
@@ -69,7 +131,7 @@ public class JSONWrapper {
      * @return the mapped json attributes
      */
     public Map<String, Object> getObject() {
-        return (JSONObject) j_;
+        return (JSONObject) json();
     }
 
     /**
@@ -83,4 +145,24 @@ public class JSONWrapper {
         }
         return new JSONWrapper(s);
     }
+
+    /**
+     * Wrap the JSON stream without parsing it. The wrapper can be used only once
+     * and the stream is closed once it is read
+     * @param reader
+     * @return JSON wrapper of the stream
+     */
+    public static JSONWrapper wrap(Reader reader) {
+        return new JSONWrapper(reader);
+    }
+
+    /**
+     * Wrap the UTF-8 encoded JSON stream without parsing it. The wrapper can be
+     * used only once and the stream is closed once it is read
+     * @param is
+     * @return JSON wrapper of the stream
+     */
+    public static JSONWrapper wrap(InputStream is) {
+        return new JSONWrapper(new InputStreamReader(is, Charset.forName("UTF-8")));
+    }
 }
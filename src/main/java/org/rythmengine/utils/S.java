@@ -8,10 +8,7 @@ package org.rythmengine.utils;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
 import java.net.URLEncoder;
-import java.text.DateFormat;
-import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.text.MessageFormat;
 import java.text.Normalizer;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -22,16 +19,13 @@ import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
-import java.util.ResourceBundle;
-import java.util.TimeZone;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.rythmengine.RythmEngine;
-import org.rythmengine.conf.RythmConfiguration;
 import org.rythmengine.extension.IFormatter;
 import org.rythmengine.extension.II18nMessageResolver;
 import org.rythmengine.extension.Transformer;
-import org.rythmengine.internal.CacheKey;
+import org.rythmengine.i18n.I18nMessages;
 import org.rythmengine.logger.ILogger;
 import org.rythmengine.logger.Logger;
 import org.rythmengine.template.ITemplate;
@@ -996,14 +990,7 @@ public class S {
             locale = I18N.locale(template);
         }
         
-        NumberFormat nf;
-        if (null == pattern) nf = NumberFormat.getNumberInstance(locale);
-        else {
-            DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
-            nf = new DecimalFormat(pattern, symbols);
-        }
-        
-        return nf.format(number);
+        return Formats.number(pattern, locale).format(number);
     }
 
     /**
@@ -1208,13 +1195,7 @@ public class S {
             locale = I18N.locale(template);
         }
 
-        DateFormat df;
-        if (null != pattern) df = new SimpleDateFormat(pattern, locale);
-        else df = DateFormat.getDateInstance(DateFormat.DEFAULT, locale);
-        
-        if (null != timezone) df.setTimeZone(TimeZone.getTimeZone(timezone));
-        
-        return df.format(date);
+        return Formats.date(pattern, locale, timezone).format(date);
     }
 
     /**
@@ -1385,7 +1366,6 @@ public class S {
                 locale = Locale.SIMPLIFIED_CHINESE;
             }
         }
-        NumberFormat numberFormat = NumberFormat.getCurrencyInstance(locale);
         Currency currency = null;
         if (null == currencyCode) {
             String country = locale.getCountry();
@@ -1393,53 +1373,15 @@ public class S {
                 currency = Currency.getInstance(locale);
             }
             if (null == currency) currencyCode = "$"; // default
-        }
-
-        if (null == currency) {
-            if (currencyCode.length() != 3) {
-                // it must be something like '$' or '￥' etc
-            } else {
-                currency = Currency.getInstance(currencyCode);
-            }
-        }
-        if (null != currency) {
-            numberFormat.setCurrency(currency);
-            numberFormat.setMaximumFractionDigits(currency.getDefaultFractionDigits());
-        } else {
-            DecimalFormatSymbols dfs = new DecimalFormatSymbols();
-            dfs.setCurrencySymbol(currencyCode);
-            ((DecimalFormat) numberFormat).setDecimalFormatSymbols(dfs);
-        }
+        } else if (currencyCode.length() == 3) {
+            currency = Currency.getInstance(currencyCode);
+        } // otherwise it must be something like '$' or '￥' etc
+        NumberFormat numberFormat = Formats.currency(locale, currency, currencyCode);
         String s = numberFormat.format(number);
         if (null != currency) s = s.replace(currency.getCurrencyCode(), currency.getSymbol(locale));
         return s;
     }
     
-    private static String getMessage(ITemplate template, ResourceBundle bundle, String key, Locale locale, Object ... args) {
-        if (null == locale) locale = I18N.locale(template);
-        String s = key;
-        try {
-            s = bundle.getString(key);
-        } catch (RuntimeException e) {
-            //ignore it
-        }
-        int argLen = args.length;
-        if (argLen > 0) {
-            MessageFormat fmt = new MessageFormat(s, locale);
-            Object[] argsResolved = new Object[argLen];
-            for (int i = 0; i < argLen; ++i) {
-                Object arg = args[i];
-                if (arg instanceof String) {
-                    arg = S.i18n(template, (String)arg);
-                }
-                argsResolved[i] = arg;
-            }
-            return fmt.format(argsResolved);
-        } else {
-            return s;
-        }
-    }
-    
     /**
      * <p>Return i18n message of a given key and args, use the locale info from the template specified. 
      * if <tt>null</tt> template instance passed in then it will try to guess from the current engine via
@@ -1459,9 +1401,8 @@ public class S {
                 return resolver.getMessage(template, k, args);
             }
         }
-        boolean useFormat = args.length > 0;
         Locale locale = null;
-        if (useFormat) {
+        if (args.length > 0) {
             // check if the first arg is locale
             Object arg0 = args[0];
             if (arg0 instanceof Locale) {
@@ -1469,31 +1410,10 @@ public class S {
                 Object[] args0 = new Object[args.length - 1];
                 System.arraycopy(args, 1, args0, 0, args.length - 1);
                 args = args0;
-                useFormat = args.length > 0;
             }
         }
         if (null == locale) locale = I18N.locale(template);
-        RythmEngine engine = null == template ? RythmEngine.get() : template.__engine();
-        String cacheKey = null;
-        if (null != template && null != locale) {
-            cacheKey = CacheKey.i18nMsg(template, k, useFormat, locale);
-            Object cached = engine.cached(cacheKey);
-            if (S.notEmpty(cached)) return S.str(cached);
-        }
-        ResourceBundle bundle;
-        for (String msgSrc: RythmConfiguration.get().messageSources()) {
-            bundle = I18N.bundle(template, msgSrc, locale);
-            if (null != bundle) {
-                String data = getMessage(template, bundle, k, locale, args);
-                if (null != data) {
-                    if (null != engine) {
-                        engine.cache(cacheKey, data, -1);
-                    }
-                    return data;
-                }
-            }
-        }
-        return k;
+        return I18nMessages.of(template).message(k, locale).format(template, args);
     }
 
     /**
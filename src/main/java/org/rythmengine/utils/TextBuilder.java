@@ -36,6 +36,43 @@ public class TextBuilder implements Cloneable {
      */
     protected TextBuilder __caller;
 
+    // the builder owning the buffer the output of this builder goes to when
+    // this builder has no buffer, resolved once instead of delegating the output
+    // to the caller level by level
+    private TextBuilder __owner;
+    private int __ownerEpoch;
+
+    // the epoch shared by the builders chained to the same root builder, bumped
+    // when a builder of the chain without buffer gets one, which may change the
+    // owner resolved by the builders chained to it
+    private int[] __chainEpoch;
+
+    private TextBuilder owner() {
+        TextBuilder o = __owner;
+        int epoch = __chainEpoch[0];
+        if (null == o || null == o.__buffer || __ownerEpoch != epoch) {
+            o = __caller;
+            while (null == o.__buffer) {
+                o = o.__caller;
+            }
+            __owner = o;
+            __ownerEpoch = epoch;
+        }
+        return o;
+    }
+
+    /**
+     * Chain this builder to the caller specified, or start a new chain if
+     * the caller is <code>null</code>. Not to be used in user application or template
+     *
+     * @param caller the caller builder
+     */
+    protected void __chainTo(TextBuilder caller) {
+        __caller = caller;
+        __owner = null;
+        __chainEpoch = null == caller ? new int[1] : caller.__chainEpoch;
+    }
+
     /**
      * Return the caller in {@link ITemplate} type
      *
@@ -62,15 +99,20 @@ public class TextBuilder implements Cloneable {
      */
     public void __setBuffer(StringBuilder buffer) {
         if (null != __caller) ((TextBuilder) __caller).__setBuffer(buffer);
-        else __buffer = buffer;
+        else setSelfOut(buffer);
     }
 
     /**
-     * Set the internal buffer to this instance
+     * Set the internal buffer to this instance. The buffer of a builder shall
+     * always be swapped through this method so the builders chained to it
+     * resolve their output buffer again
      *
      * @param buffer
      */
     public void setSelfOut(StringBuilder buffer) {
+        if (null == __buffer && null != buffer) {
+            __chainEpoch[0]++;
+        }
         __buffer = buffer;
     }
 
@@ -89,6 +131,7 @@ public class TextBuilder implements Cloneable {
     public TextBuilder() {
         __buffer = new StringBuilder();
         __caller = null;
+        __chainEpoch = new int[1];
     }
 
     /**
@@ -99,6 +142,7 @@ public class TextBuilder implements Cloneable {
     public TextBuilder(TextBuilder caller) {
         this.__caller = caller;
         __buffer = (null == caller) ? new StringBuilder() : null;
+        __chainEpoch = (null == caller) ? new int[1] : caller.__chainEpoch;
     }
 
     /**
@@ -166,7 +210,7 @@ public class TextBuilder implements Cloneable {
 
     private void p_(StrBuf wrapper) {
         if (null != __buffer) __append(wrapper);
-        else __caller.p(wrapper);
+        else owner().__append(wrapper);
     }
 
     /**
@@ -192,7 +236,7 @@ public class TextBuilder implements Cloneable {
 
     private void p_(Object o) {
         if (null != __buffer) __append(o);
-        else __caller.p(o);
+        else owner().__append(o);
     }
 
     /**
@@ -225,7 +269,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(char c) {
         if (null != __buffer) __append(c);
-        else __caller.p(c);
+        else owner().__append(c);
         return this;
     }
 
@@ -247,7 +291,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(byte b) {
         if (null != __buffer) __append(b);
-        else __caller.p(b);
+        else owner().__append(b);
         return this;
     }
 
@@ -268,7 +312,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(int i) {
         if (null != __buffer) __append(i);
-        else __caller.p(i);
+        else owner().__append(i);
         return this;
     }
 
@@ -289,7 +333,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(long l) {
         if (null != __buffer) __append(l);
-        else __caller.p(l);
+        else owner().__append(l);
         return this;
     }
 
@@ -310,7 +354,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(float f) {
         if (null != __buffer) __append(f);
-        else __caller.p(f);
+        else owner().__append(f);
         return this;
     }
 
@@ -331,7 +375,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(double d) {
         if (null != __buffer) __append(d);
-        else __caller.p(d);
+        else owner().__append(d);
         return this;
     }
 
@@ -352,7 +396,7 @@ public class TextBuilder implements Cloneable {
      */
     public final TextBuilder p(boolean b) {
         if (null != __buffer) __append(b);
-        else __caller.p(b);
+        else owner().__append(b);
         return this;
     }
 
@@ -507,7 +551,7 @@ public class TextBuilder implements Cloneable {
     public TextBuilder clone(TextBuilder caller) {
         try {
             TextBuilder tb = (TextBuilder) super.clone();
-            tb.__caller = caller;
+            tb.__chainTo(caller);
             return tb;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException("Unexpected");
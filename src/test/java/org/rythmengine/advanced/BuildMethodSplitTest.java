@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICodeType;
+import org.rythmengine.template.ITemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test splitting big template body into several methods
+ */
+public class BuildMethodSplitTest extends TestBase {
+
+    private static RythmEngine engine(int threshold) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CODEGEN_BUILD_SPLIT_THRESHOLD.getKey(), threshold);
+        conf.put(RythmConfigurationKey.DEFAULT_CODE_TYPE_IMPL.getKey(), ICodeType.DefImpl.RAW);
+        return new RythmEngine(conf);
+    }
+
+    private static String bigTemplate(int sections) {
+        return bigTemplate("", sections, "");
+    }
+
+    private static String bigTemplate(String head, int sections, String tail) {
+        StringBuilder sb = new StringBuilder("@args int n\n").append(head);
+        for (int i = 0; i < sections; ++i) {
+            sb.append("@{String s").append(i).append(" = \"v").append(i).append("\"; final int k").append(i).append(" = n + ").append(i).append(";}\n");
+            sb.append("@if (k").append(i).append(" % 2 == 0) {even:@s").append(i).append("} else {odd:@k").append(i).append("}\n");
+            sb.append("@for (int j = 0; j < 2; ++j) {[@j@s").append(i).append("]}\n");
+        }
+        // use locals declared at the beginning at the end of the template
+        sb.append("@s0-@k0\n");
+        sb.append("@if (n > 100) {@return()}\n");
+        sb.append(tail);
+        sb.append("end");
+        return sb.toString();
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        String t = bigTemplate(60);
+        RythmEngine split = engine(500);
+        RythmEngine unsplit = engine(0);
+        try {
+            ITemplate tmpl = split.getTemplate(t, 3);
+            assertNotNull(tmpl.getClass().getDeclaredMethod("__build_1"));
+            try {
+                unsplit.getTemplate(t, 3).getClass().getDeclaredMethod("__build_0");
+                fail("split should be disabled");
+            } catch (NoSuchMethodException e) {
+                // expected
+            }
+            String expected = unsplit.render(t, 3);
+            assertTrue(expected.contains("v0-3"));
+            assertTrue(expected.endsWith("end"));
+            assertEquals(expected, split.render(t, 3));
+            // early return from a split method
+            expected = unsplit.render(t, 200);
+            assertFalse(expected.endsWith("end"));
+            assertEquals(expected, split.render(t, 200));
+        } finally {
+            split.shutdown();
+            unsplit.shutdown();
+        }
+    }
+
+    private static boolean split(ITemplate tmpl) {
+        try {
+            return null != tmpl.getClass().getDeclaredMethod("__build_0");
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.DEFAULT_CODE_TYPE_IMPL.getKey(), ICodeType.DefImpl.RAW);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            assertFalse(split(engine.getTemplate(bigTemplate(60), 3)));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testBailOut() {
+        String[] heads = {
+                // annotation
+                "@{@SuppressWarnings(\"unused\") String a = \"a\";}\n@a\n",
+                // array initializer
+                "@{int[] a = {1, 2};}\n@a.length\n",
+                // multiple declarators
+                "@{int a = 1, b = 2;}\n@(a + b)\n",
+                // local class
+                "@{class A {int v = 1;} A a = new A();}\n@a.v\n",
+        };
+        String[] outputs = {"a", "2", "3", "1"};
+        RythmEngine split = engine(500);
+        RythmEngine unsplit = engine(0);
+        try {
+            for (int i = 0; i < heads.length; ++i) {
+                String t = bigTemplate(heads[i], 60, "");
+                ITemplate tmpl = split.getTemplate(t, 3);
+                assertFalse(heads[i], split(tmpl));
+                String expected = unsplit.render(t, 3);
+                assertTrue(expected, expected.trim().startsWith(outputs[i]));
+                assertEquals(expected, split.render(t, 3));
+            }
+        } finally {
+            split.shutdown();
+            unsplit.shutdown();
+        }
+    }
+
+    @Test
+    public void testHoistedVariableCapturedByAnonymousClass() {
+        String head = "@{final String cap = \"c\" + n; Object o = new Object() {public String toString() {return cap;}};}\n";
+        String t = bigTemplate(head, 60, "@o/@cap\n");
+        RythmEngine split = engine(500);
+        try {
+            assertTrue(split(split.getTemplate(t, 3)));
+            String s = split.render(t, 3);
+            assertTrue(s.endsWith("c3/c3\nend"));
+            s = split.render(t, 4);
+            assertTrue(s.endsWith("c4/c4\nend"));
+        } finally {
+            split.shutdown();
+        }
+    }
+
+}
@@ -9,6 +9,9 @@ import org.rythmengine.TestBase;
 import org.rythmengine.utils.JSONWrapper;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
 /**
  * Test passing JSON string as template parameter
  */
@@ -56,6 +59,55 @@ public class JSONParameterTest extends TestBase {
     eq("Tom: 12");
   }
 
+  @Test
+  public void testStream() throws Exception {
+    t = "@args List<org.rythmengine.advanced.JSONParameterTest.User> users, String title\n@title<ul>@for(users){\n@_.name: @_.age\n}</ul>";
+    String params = "{\"unknown\": {\"a\": [1, 2]}, \"users\": [{\"name\":\"\\\"Tom\\\"\", \"age\": 12}, {\"name\":\"Peter\", \"age\": 11}], \"title\": \"Users\"}";
+    s = r(t, JSONWrapper.wrap(new StringReader(params)));
+    eq("Users<ul>\n\"Tom\": 12\nPeter: 11\n</ul>");
+
+    s = r(t, JSONWrapper.wrap(new ByteArrayInputStream(params.getBytes("UTF-8"))));
+    eq("Users<ul>\n\"Tom\": 12\nPeter: 11\n</ul>");
+
+    // the whole array is bound to the single List arg
+    t = "@args List<org.rythmengine.advanced.JSONParameterTest.User> users\n<ul>@for(users){\n@_.name: @_.age\n}</ul>";
+    params = "[{\"name\":\"Tom\", \"age\": 12}, {\"name\":\"Peter\", \"age\": 11}]";
+    s = r(t, JSONWrapper.wrap(new StringReader(params)));
+    eq("<ul>\nTom: 12\nPeter: 11\n</ul>");
+
+    // array elements are bound by position
+    t = "@args org.rythmengine.advanced.JSONParameterTest.User user, int n, org.rythmengine.advanced.JSONParameterTest.User[] friends, Map<String, Integer> scores\n@user.name: @n, @friends.length, @scores.get(\"math\")";
+    params = "[{\"name\":\"Tom\", \"age\": 12}, 3, [{\"name\":\"Peter\"}, {\"name\":\"Jack\"}], {\"math\": 90}, \"extra\"]";
+    s = r(t, JSONWrapper.wrap(new StringReader(params)));
+    eq("Tom: 3, 2, 90");
+
+    // the stream is parsed on demand if the data is read through the wrapper
+    JSONWrapper json = JSONWrapper.wrap(new StringReader("{\"name\": \"world\"}"));
+    assertFalse(json.isArray());
+    assertEquals("world", json.getObject().get("name"));
+    t = "@args String name;hello @name";
+    s = r(t, json);
+    eq("hello world");
+    // the parsed data is reused
+    s = r(t, json);
+    eq("hello world");
+
+    // a stream-backed wrapper bound to a template can not be used again
+    json = JSONWrapper.wrap(new StringReader("{\"name\": \"world\"}"));
+    s = r(t, json);
+    eq("hello world");
+    try {
+      r(t, json);
+      fail("expected IllegalStateException");
+    } catch (RuntimeException e) {
+      Throwable cause = e;
+      while (null != cause && !(cause instanceof IllegalStateException)) {
+        cause = cause.getCause();
+      }
+      assertNotNull(cause);
+    }
+  }
+
   /**
    * main routine
    * 
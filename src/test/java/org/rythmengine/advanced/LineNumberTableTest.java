@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.Test;
+import org.rythmengine.TestBase;
+import org.rythmengine.exception.RythmException;
+import org.rythmengine.internal.compiler.LineNumberTable;
+import org.rythmengine.utils.F;
+
+/**
+ * Test mapping java source lines to template lines
+ */
+public class LineNumberTableTest extends TestBase {
+
+    @Test
+    public void testExtract() {
+        String src = "a();\nb(); //line: 3\n\tc(\"//line: 4\"); //line: 5\r\nd(\"//line: 6\");\ne(); //line: -1\n";
+        F.T2<String, LineNumberTable> t2 = LineNumberTable.extract(src);
+        assertEquals("a();\nb();\n\tc(\"//line: 4\");\nd(\"//line: 6\");\ne();\n", t2._1);
+        LineNumberTable table = t2._2;
+        assertEquals(2, table.size());
+        assertEquals(-1, table.templateLine(1));
+        assertEquals(3, table.templateLine(2));
+        assertEquals(5, table.templateLine(3));
+        assertEquals(-1, table.templateLine(4));
+
+        table = LineNumberTable.deserialize(table.serialize());
+        assertEquals(3, table.templateLine(2));
+        assertEquals(5, table.templateLine(3));
+        assertEquals(-1, table.templateLine(5));
+    }
+
+    @Test
+    public void testRuntimeErrorLine() {
+        t = "@args int n\nline 2\n@(10 / n)\nline 4";
+        try {
+            r(t, 0);
+            fail("ArithmeticException expected");
+        } catch (RythmException e) {
+            assertEquals(3, e.templateLineNumber);
+            assertFalse(e.getJavaSource().contains("//line:"));
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.advanced;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICodeType;
+import org.rythmengine.utils.IO;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test reloading changed templates without restarting the whole engine
+ */
+public class PartialReloadTest extends TestBase {
+
+    private File root;
+    private RythmEngine engine;
+
+    @Before
+    public void setup() throws Exception {
+        root = File.createTempFile("rythm", "reload");
+        root.delete();
+        root.mkdirs();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), root);
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.dev);
+        conf.put(RythmConfigurationKey.RESOURCE_REFRESH_INTERVAL.getKey(), 0);
+        conf.put(RythmConfigurationKey.DEFAULT_CODE_TYPE_IMPL.getKey(), ICodeType.DefImpl.RAW);
+        engine = new RythmEngine(conf);
+    }
+
+    @After
+    public void teardown() {
+        engine.shutdown();
+        for (File f : root.listFiles()) {
+            f.delete();
+        }
+        root.delete();
+    }
+
+    private void write(String name, String content, long timestamp) {
+        File f = new File(root, name);
+        IO.writeContent(content, f);
+        f.setLastModified(timestamp);
+    }
+
+    @Test
+    public void testReloadChangedTagOnly() {
+        long now = System.currentTimeMillis() - 10000;
+        write("tag1.html", "T1", now);
+        write("layout.html", "[@render()]", now);
+        write("page.html", "@extends(layout)@tag1()", now);
+        write("other.html", "O", now);
+
+        eq("[T1]", engine.render("page.html"));
+        eq("O", engine.render("other.html"));
+        Class<?> otherClass = engine.getTemplate("other.html").getClass();
+        Class<?> layoutClass = engine.getTemplate("layout.html").getClass();
+
+        write("tag1.html", "T2", now + 5000);
+        eq("[T2]", engine.render("page.html"));
+        eq("O", engine.render("other.html"));
+        assertSame(otherClass, engine.getTemplate("other.html").getClass());
+        assertSame(layoutClass, engine.getTemplate("layout.html").getClass());
+        assertTrue(engine.classLoader().generation() > 0);
+    }
+
+    @Test
+    public void testReloadLayoutWithDependents() {
+        long now = System.currentTimeMillis() - 10000;
+        write("layout.html", "[@render()]", now);
+        write("page.html", "@extends(layout)P", now);
+        write("other.html", "O", now);
+
+        eq("[P]", engine.render("page.html"));
+        eq("O", engine.render("other.html"));
+        Class<?> otherClass = engine.getTemplate("other.html").getClass();
+
+        write("layout.html", "{@render()}", now + 5000);
+        eq("{P}", engine.render("page.html"));
+        assertSame(otherClass, engine.getTemplate("other.html").getClass());
+    }
+
+    @Test
+    public void testRenderDuringReload() throws Exception {
+        final long now = System.currentTimeMillis() - 10000;
+        write("tag1.html", "T0", now);
+        write("page.html", "[@tag1()]", now);
+        eq("[T0]", engine.render("page.html"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; ++i) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        for (int j = 0; j < 100; ++j) {
+                            String s = engine.render("page.html");
+                            if (!s.matches("\\[T[0-5]\\]")) {
+                                return s;
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 1; i <= 5; ++i) {
+                write("tag1.html", "T" + i, now + i * 2000);
+                engine.render("page.html");
+            }
+            for (Future<String> result : results) {
+                assertNull(result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        eq("[T5]", engine.render("page.html"));
+    }
+
+    private static void eq(String expected, String found) {
+        assertEquals(expected, found);
+    }
+}
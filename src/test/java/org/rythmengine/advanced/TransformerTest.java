@@ -10,12 +10,17 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.junit.Test;
 import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
 import org.rythmengine.TestBase;
 import org.rythmengine.conf.RythmConfigurationKey;
 import org.rythmengine.extension.Transformer;
 import org.rythmengine.utils.S;
 
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Transformer
 public class TransformerTest extends TestBase {
@@ -168,6 +173,80 @@ public class TransformerTest extends TestBase {
         assertContains(s, "double of [99] is [" + S.format(dbl(99), "0000.00") + "]");
     }
     
+    @Test
+    public void testChainedTransformers() {
+        Rythm.shutdown();
+        // transformer call chain and nested method calls in the argument list
+        s = r("@args String x\n@x.escape(\"raw\").capFirst()", "foo");
+        eq("Foo");
+        s = r("@args List<String> l\n@l.join(String.valueOf(l.size())).capFirst()", Arrays.asList("ab", "cd"));
+        eq("Ab2cd");
+    }
+
+    @Test
+    public void testLiteralFormatHandle() {
+        t = "@args Number n, Date d\n@n.format(\"#,##0.00\")|@d.format(\"yyyy-MM-dd\")|@n.format(\"#,##0.00\")";
+        getSource();
+        assertContains(s, "__fmt_");
+        assertNotContains(s, "S.format(");
+
+        Date d = new Date();
+        String day = S.format(d, "yyyy-MM-dd");
+        s = r(t, 1234.5, d);
+        eq(S.format(1234.5, "#,##0.00") + "|" + day + "|" + S.format(1234.5, "#,##0.00"));
+
+        // null values are formatted the same as S.format does
+        s = r(t, null, null);
+        eq(S.format((Number) null, "#,##0.00") + "|" + S.format((Date) null, "yyyy-MM-dd") + "|" + S.format((Number) null, "#,##0.00"));
+
+        // the locale is respected by the handle
+        s = r("@args Number n\n@n.format(\"#,##0.00\")", 1234.5);
+        String s0 = s;
+        s = Rythm.engine().prepare(Locale.GERMANY).render("@args Number n\n@n.format(\"#,##0.00\")", 1234.5);
+        eq("1.234,50");
+        s = r("@args Number n\n@n.format(\"#,##0.00\")", 1234.5);
+        eq(s0);
+    }
+
+    @Test
+    public void testLiteralFormatHandleConcurrency() throws Exception {
+        final String t = "@args Number n, Date d\n@n.format(\"#,##0.000\")|@d.format(\"yyyy-MM-dd HH:mm:ss\")";
+        final Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.I18N_LOCALE.getKey(), Locale.US);
+        final RythmEngine engine = new RythmEngine(conf);
+        try {
+            final SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+            final DecimalFormat nf = new DecimalFormat("#,##0.000", new DecimalFormatSymbols(Locale.US));
+            final AtomicInteger failures = new AtomicInteger();
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; ++i) {
+                final int seed = i;
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        Random random = new Random(seed);
+                        for (int j = 0; j < 500; ++j) {
+                            double n = random.nextDouble() * 1000000;
+                            Date d = new Date(random.nextInt() * 1000L);
+                            String expected;
+                            synchronized (df) {
+                                expected = nf.format(n) + "|" + df.format(d);
+                            }
+                            if (!expected.equals(engine.render(t, n, d))) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                };
+            }
+            for (Thread thread : threads) thread.start();
+            for (Thread thread : threads) thread.join();
+            assertEquals(0, failures.get());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
     @Test
     public void testTransformerConf() {
         Map<String, Object> conf = new HashMap<String, Object>();
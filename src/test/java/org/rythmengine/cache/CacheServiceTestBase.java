@@ -8,8 +8,15 @@ package org.rythmengine.cache;
 import org.junit.Before;
 import org.junit.Test;
 import org.rythmengine.TestBase;
+import org.rythmengine.extension.IBulkCacheService;
 import org.rythmengine.extension.ICacheService;
 
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * base test class for testing the SimpleCacheService
  *
@@ -84,6 +91,69 @@ public abstract class CacheServiceTestBase extends TestBase {
         assertNull(cache.get("k3"));
     }
 
+    @Test
+    public void testBulk() throws Exception {
+        IBulkCacheService cache = CacheServiceAdapter.of(this.cache);
+        Map<String, Serializable> items = new HashMap<String, Serializable>();
+        items.put("k1", "v1");
+        items.put("k2", 2);
+        cache.putAll(items, 10);
+        Map<String, Serializable> found = cache.getAll(Arrays.asList("k1", "k2", "k3"));
+        assertEquals(items, found);
+        assertEquals(2, cache.getAsync("k2").get());
+        assertNull(cache.getAsync("k3").get());
+    }
+
+    @Test
+    public void testComputeIfAbsent() throws Exception {
+        final IBulkCacheService cache = CacheServiceAdapter.of(this.cache);
+        final AtomicInteger loaded = new AtomicInteger();
+        final IBulkCacheService.Loader loader = new IBulkCacheService.Loader() {
+            @Override
+            public Serializable load(String key) {
+                loaded.incrementAndGet();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return key + "-value";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Serializable>> futures = new ArrayList<Future<Serializable>>();
+            for (int i = 0; i < 4; ++i) {
+                futures.add(executor.submit(new Callable<Serializable>() {
+                    @Override
+                    public Serializable call() throws Exception {
+                        return cache.computeIfAbsent("k", loader, 10);
+                    }
+                }));
+            }
+            for (Future<Serializable> f : futures) {
+                assertEquals("k-value", f.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loaded.get());
+        assertEquals("k-value", cache.get("k"));
+    }
+
+    @Test
+    public void testBytes() throws Exception {
+        IBulkCacheService cache = CacheServiceAdapter.of(this.cache);
+        Charset utf8 = Charset.forName("UTF-8"), utf16 = Charset.forName("UTF-16");
+        String s = "h\u00e9llo";
+        cache.putBytes("k1", s.getBytes(utf8), utf8, 10);
+        assertArrayEquals(s.getBytes(utf8), cache.getBytes("k1", utf8));
+        assertArrayEquals(s.getBytes(utf16), cache.getBytes("k1", utf16));
+        cache.put("k2", "hello", 10);
+        assertArrayEquals("hello".getBytes(utf16), cache.getBytes("k2", utf16));
+        assertNull(cache.getBytes("k3", utf8));
+    }
+
     public static void main(String[] args) {
         run(CacheServiceTestBase.class);
     }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.template.ITag;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Test composite cache keys
+ */
+public class CompositeKeyTest extends TestBase {
+
+    @Test
+    public void testEquality() {
+        CompositeKey k1 = new CompositeKey("k", 1, "a", null, Locale.US);
+        CompositeKey k2 = new CompositeKey("k", 1, "a", null, Locale.US);
+        assertEquals(k1, k2);
+        assertEquals(k1.hashCode(), k2.hashCode());
+        assertEquals("k-1-a-null-en_US", k1.toString());
+        assertFalse(k1.equals(new CompositeKey("k", 1L, "a", null, Locale.US)));
+        assertFalse(k1.equals(new CompositeKey("x", 1, "a", null, Locale.US)));
+        // other values are compared by their String form
+        assertEquals(new CompositeKey("k", new StringBuilder("a")), new CompositeKey("k", "a"));
+    }
+
+    @Test
+    public void testParameterList() {
+        ITag.__ParameterList pl1 = new ITag.__ParameterList();
+        pl1.add("x", new StringBuilder("1"));
+        ITag.__ParameterList pl2 = new ITag.__ParameterList();
+        pl2.add("x", "1");
+        assertEquals(new CompositeKey("k", pl1), new CompositeKey("k", pl2));
+        pl2.add("y", 2);
+        assertFalse(new CompositeKey("k", pl1).equals(new CompositeKey("k", pl2)));
+    }
+
+    @Test
+    public void testComposedWithSimpleCacheService() {
+        SimpleCacheService cache = SimpleCacheService.INSTANCE;
+        cache.put(new CompositeKey("ck", 1, "a"), "v", 60);
+        assertEquals("v", cache.get(new CompositeKey("ck", 1, "a")));
+        assertNull(cache.get(new CompositeKey("ck", 2, "a")));
+        // the composite key is not the same as its String form
+        assertNull(cache.get("ck-1-a"));
+        cache.evict(new CompositeKey("ck", 1, "a"));
+        assertNull(cache.get(new CompositeKey("ck", 1, "a")));
+    }
+
+    @Test
+    public void testCachedTagInvocation() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            engine.registerTemplate("ckTag", engine.getTemplate("@args int x, int y\n[@x:@y:@(System.nanoTime())]"));
+            String t = "@args int x\n@ckTag(x, 1).cache(\"1mn\")";
+            String s1 = engine.render(t, 1);
+            assertEquals(s1, engine.render(t, 1));
+            String s2 = engine.render(t, 2);
+            assertTrue(s2.startsWith("[2:1:"));
+            assertFalse(s1.substring(5).equals(s2.substring(5)));
+            assertEquals(s2, engine.render(t, 2));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICodeType;
+import org.rythmengine.utils.IO;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test fragments cached by a template are orphaned when the template or a tag
+ * it invokes is reloaded
+ */
+public class FragmentCacheInvalidationTest extends TestBase {
+
+    private File root;
+    private RythmEngine engine;
+
+    @Before
+    public void setup() throws Exception {
+        root = File.createTempFile("rythm", "fragment");
+        root.delete();
+        root.mkdirs();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.HOME_TEMPLATE.getKey(), root);
+        conf.put(RythmConfigurationKey.ENGINE_MODE.getKey(), Rythm.Mode.dev);
+        conf.put(RythmConfigurationKey.RESOURCE_REFRESH_INTERVAL.getKey(), 0);
+        conf.put(RythmConfigurationKey.DEFAULT_CODE_TYPE_IMPL.getKey(), ICodeType.DefImpl.RAW);
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        engine = new RythmEngine(conf);
+    }
+
+    @After
+    public void teardown() {
+        engine.shutdown();
+        for (File f : root.listFiles()) {
+            f.delete();
+        }
+        root.delete();
+    }
+
+    private void write(String name, String content, long timestamp) {
+        File f = new File(root, name);
+        IO.writeContent(content, f);
+        f.setLastModified(timestamp);
+    }
+
+    @Test
+    public void testReloadTemplate() {
+        long now = System.currentTimeMillis() - 10000;
+        write("page.html", "@args String x\nA@cache(\"1h\"){[@x]}", now);
+        assertEquals("A[a]", engine.render("page.html", "a"));
+        assertEquals("A[a]", engine.render("page.html", "b"));
+
+        // the cached block is not changed
+        write("page.html", "@args String x\nB@cache(\"1h\"){[@x]}", now + 5000);
+        assertEquals("B[b]", engine.render("page.html", "b"));
+        assertEquals("B[b]", engine.render("page.html", "c"));
+    }
+
+    @Test
+    public void testReloadInvokedTag() {
+        long now = System.currentTimeMillis() - 10000;
+        write("tag1.html", "T1", now);
+        write("page.html", "@cache(\"1h\"){[@tag1()]}@tag1().cache(\"1h\")", now);
+        write("other.html", "@cache(\"1h\"){<@(System.nanoTime())>}", now);
+        assertEquals("[T1]T1", engine.render("page.html"));
+        String other = engine.render("other.html");
+
+        write("tag1.html", "T2", now + 5000);
+        assertEquals("[T2]T2", engine.render("page.html"));
+        // fragments of templates not invoking the tag are kept
+        assertEquals(other, engine.render("other.html"));
+    }
+}
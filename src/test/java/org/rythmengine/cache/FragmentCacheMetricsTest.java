@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test fragment cache metrics
+ */
+public class FragmentCacheMetricsTest extends TestBase {
+
+    private RythmEngine engine;
+
+    public static String slow(String s) {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return s;
+    }
+
+    @Before
+    public void setupEngine() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(RythmConfigurationKey.CACHE_METRICS_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.ENGINE_ID.getKey(), "metrics-test");
+        engine = new RythmEngine(conf);
+    }
+
+    @After
+    public void teardown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testMetrics() {
+        String t = "@args String x\n@cache(\"1mn\"){[@org.rythmengine.cache.FragmentCacheMetricsTest.slow(\"abc\")]}\n@cache(\"1mn\", x){<@x>}";
+        for (int i = 0; i < 5; ++i) {
+            engine.render(t, "v" + (i % 2));
+        }
+        FragmentCacheMetrics metrics = engine.fragmentCacheMetrics();
+        List<FragmentStats> stats = metrics.stats();
+        assertEquals(2, stats.size());
+
+        // ordered by time saved
+        FragmentStats slow = stats.get(0);
+        assertEquals(2, slow.line());
+        assertNotNull(slow.templateClass());
+        assertEquals(4, slow.hitCount());
+        assertEquals(1, slow.missCount());
+        assertEquals(0, slow.evictionCount());
+        assertEquals(5, slow.averageStoredSize());
+        assertTrue(slow.averageRenderTime() >= 20);
+        assertTrue(slow.timeSaved() >= 80);
+
+        FragmentStats withArgs = stats.get(1);
+        assertEquals(3, withArgs.line());
+        assertEquals(3, withArgs.hitCount());
+        assertEquals(2, withArgs.missCount());
+        assertEquals(6, metrics.getMissCount() + metrics.getHitCount() - 4);
+
+        metrics.reset();
+        assertEquals(0, metrics.getHitCount());
+        assertEquals(2, metrics.stats(slow.key()).line());
+    }
+
+    @Test
+    public void testCachedTagInvocation() {
+        engine.registerTemplate("metricsTag", engine.getTemplate("@args String x\n[@x]"));
+        engine.render("@metricsTag(\"a\").cache(\"1mn\")\n@metricsTag(\"a\").cache(\"1mn\").assign(\"s\")@s");
+        engine.render("@metricsTag(\"a\").cache(\"1mn\")\n@metricsTag(\"a\").cache(\"1mn\").assign(\"s\")@s");
+        List<FragmentStats> stats = engine.fragmentCacheMetrics().stats();
+        assertEquals(2, stats.size());
+        for (FragmentStats s : stats) {
+            assertEquals(1, s.hitCount());
+            assertEquals(1, s.missCount());
+            assertEquals(3, s.averageStoredSize());
+        }
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        engine.render("@cache(\"1mn\"){abc}");
+        engine.render("@cache(\"1mn\"){abc}");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.rythmengine:type=FragmentCache,engine=\"metrics-test\"");
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "HitCount"));
+        assertEquals(1, ((String[]) server.getAttribute(name, "Fragments")).length);
+        engine.shutdown();
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.MemcachedClient;
+import org.rythmengine.extension.ICacheService;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.io.Serializable;
+import java.util.concurrent.Future;
+
+/**
+ * Test the memcached cache service with a memcached stand-in server
+ */
+public class MemcachedCacheServiceTest extends CacheServiceTestBase {
+
+    private static MemcachedStandIn server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new MemcachedStandIn();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.shutdown();
+    }
+
+    public MemcachedCacheServiceTest() {
+        cache = cacheService();
+    }
+
+    @Override
+    protected ICacheService cacheService() {
+        return new MemcachedCacheService(server.address());
+    }
+
+    @Before
+    public void clearServer() {
+        cache.clear();
+    }
+
+    @Test
+    public void testGetAllInOneRoundTrip() {
+        for (int i = 0; i < 40; ++i) {
+            cache.put("fragment" + i, "v" + i, 10);
+        }
+        int getCommands = server.getCommands();
+        Map<String, Serializable> found = ((MemcachedCacheService) cache).getAll(Arrays.asList("fragment0", "fragment39", "fragment40"));
+        assertEquals(1, server.getCommands() - getCommands);
+        assertEquals(2, found.size());
+        assertEquals("v39", found.get("fragment39"));
+    }
+
+    @Test
+    public void testInvalidKey() {
+        String key = "a key with spaces and \u00e9";
+        cache.put(key, "v", 10);
+        assertEquals("v", cache.get(key));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            sb.append("k");
+        }
+        cache.put(sb.toString(), "long", 10);
+        assertEquals("long", cache.get(sb.toString()));
+    }
+
+    @Test
+    public void testGetAsyncDegradesToMiss() throws Exception {
+        MemcachedClient client = new MemcachedClient(AddrUtil.getAddresses(server.address()));
+        MemcachedCacheService service = new MemcachedCacheService(client, MemcachedCacheService.DEFAULT_NAMESPACE);
+        service.shutdown();
+        Future<Serializable> future = service.getAsync("foo");
+        assertTrue(future.isDone());
+        assertNull(future.get());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in process server speaking the memcached text protocol, supports the
+ * commands used by spymemcached: get, gets, set, add, replace, delete,
+ * flush_all, version and quit
+ */
+public class MemcachedStandIn {
+
+    private static class Entry {
+        final int flags;
+        final byte[] data;
+        final long expireAt;
+
+        Entry(int flags, byte[] data, long expireAt) {
+            this.flags = flags;
+            this.data = data;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ServerSocket serverSocket;
+    private final AtomicInteger getCommands = new AtomicInteger();
+
+    public MemcachedStandIn() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread("memcached-stand-in") {
+            @Override
+            public void run() {
+                accept();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Return the address in the form of host:port
+     */
+    public String address() {
+        return "127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Return number of get commands received, a get command could ask for multiple keys
+     */
+    public int getCommands() {
+        return getCommands.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void shutdown() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Thread t = new Thread("memcached-stand-in-connection") {
+                @Override
+                public void run() {
+                    try {
+                        serve(socket);
+                    } catch (IOException e) {
+                        // connection closed
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                    }
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        InputStream is = new BufferedInputStream(socket.getInputStream());
+        OutputStream os = new BufferedOutputStream(socket.getOutputStream());
+        String line;
+        while (null != (line = readLine(is))) {
+            String[] sa = line.trim().split(" +");
+            String cmd = sa[0];
+            if ("get".equals(cmd) || "gets".equals(cmd)) {
+                getCommands.incrementAndGet();
+                for (int i = 1; i < sa.length; ++i) {
+                    Entry e = lookup(sa[i]);
+                    if (null != e) {
+                        write(os, "VALUE " + sa[i] + " " + e.flags + " " + e.data.length + ("gets".equals(cmd) ? " 0" : ""));
+                        os.write(e.data);
+                        write(os, "");
+                    }
+                }
+                write(os, "END");
+            } else if ("set".equals(cmd) || "add".equals(cmd) || "replace".equals(cmd)) {
+                String key = sa[1];
+                int flags = Integer.parseInt(sa[2]);
+                int exp = Integer.parseInt(sa[3]);
+                byte[] data = new byte[Integer.parseInt(sa[4])];
+                new DataInputStream(is).readFully(data);
+                readLine(is);
+                boolean exists = null != lookup(key);
+                boolean store = "set".equals(cmd) || ("add".equals(cmd) != exists);
+                if (store) {
+                    long expireAt = 0 == exp ? Long.MAX_VALUE : System.currentTimeMillis() + exp * 1000L;
+                    entries.put(key, new Entry(flags, data, expireAt));
+                }
+                if (sa.length < 6 || !"noreply".equals(sa[5])) {
+                    write(os, store ? "STORED" : "NOT_STORED");
+                }
+            } else if ("delete".equals(cmd)) {
+                boolean deleted = null != entries.remove(sa[1]);
+                if (sa.length < 3 || !"noreply".equals(sa[sa.length - 1])) {
+                    write(os, deleted ? "DELETED" : "NOT_FOUND");
+                }
+            } else if ("flush_all".equals(cmd)) {
+                entries.clear();
+                write(os, "OK");
+            } else if ("version".equals(cmd)) {
+                write(os, "VERSION 1.4.0");
+            } else if ("quit".equals(cmd)) {
+                os.flush();
+                return;
+            } else {
+                write(os, "ERROR");
+            }
+            os.flush();
+        }
+    }
+
+    private Entry lookup(String key) {
+        Entry e = entries.get(key);
+        if (null != e && e.expireAt <= System.currentTimeMillis()) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e;
+    }
+
+    private static void write(OutputStream os, String line) throws IOException {
+        os.write(line.getBytes("US-ASCII"));
+        os.write('\r');
+        os.write('\n');
+    }
+
+    private static String readLine(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = is.read()) != -1) {
+            if (c == '\n') {
+                int len = sb.length();
+                if (len > 0 && sb.charAt(len - 1) == '\r') {
+                    sb.setLength(len - 1);
+                }
+                return sb.toString();
+            }
+            sb.append((char) c);
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+}
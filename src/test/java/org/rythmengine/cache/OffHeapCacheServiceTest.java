@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICacheService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test the off heap cache service
+ */
+public class OffHeapCacheServiceTest extends CacheServiceTestBase {
+
+    private static final int SLAB_SIZE = 1024;
+
+    public OffHeapCacheServiceTest() {
+        cache = cacheService();
+    }
+
+    @Override
+    protected ICacheService cacheService() {
+        return new OffHeapCacheService(4 * SLAB_SIZE, SLAB_SIZE);
+    }
+
+    private static String str(int len, char c) {
+        char[] ca = new char[len];
+        Arrays.fill(ca, c);
+        return new String(ca);
+    }
+
+    @Test
+    public void testEviction() {
+        OffHeapCacheService cache = (OffHeapCacheService) this.cache;
+        // each item takes a whole slab
+        String v = str(SLAB_SIZE - 10, 'x');
+        for (int i = 0; i < 4; ++i) {
+            cache.put("k" + i, v + i);
+        }
+        assertEquals(4L * SLAB_SIZE, cache.allocatedBytes());
+        // k0 become the most recently used
+        assertEquals(v + 0, cache.get("k0"));
+        cache.put("k4", v + 4);
+        assertEquals(4L * SLAB_SIZE, cache.allocatedBytes());
+        assertNull(cache.get("k1"));
+        assertEquals(v + 0, cache.get("k0"));
+        assertEquals(v + 4, cache.get("k4"));
+        assertEquals(1, cache.stats().evictionCount());
+
+        // bigger than a slab
+        cache.put("big", str(SLAB_SIZE + 1, 'y'));
+        assertNull(cache.get("big"));
+        assertEquals(1, cache.rejectionCount());
+    }
+
+    @Test
+    public void testReuseChunk() {
+        OffHeapCacheService cache = (OffHeapCacheService) this.cache;
+        for (int i = 0; i < 100; ++i) {
+            cache.put("k", "value" + i);
+            cache.put("k" + (i % 3), "v" + i);
+        }
+        assertEquals("value99", cache.get("k"));
+        assertEquals("v99", cache.get("k0"));
+        assertEquals("v97", cache.get("k1"));
+        assertEquals(SLAB_SIZE, cache.allocatedBytes());
+        cache.evict("k");
+        assertNull(cache.get("k"));
+        cache.clear();
+        assertNull(cache.get("k0"));
+        cache.put("k", "x");
+        assertEquals(SLAB_SIZE, cache.allocatedBytes());
+    }
+
+    @Test
+    public void testMoveSlab() throws Exception {
+        OffHeapCacheService cache = (OffHeapCacheService) this.cache;
+        // small items take all the slabs
+        for (int i = 0; i < 4 * SLAB_SIZE / 64; ++i) {
+            cache.put("s" + i, "v" + i);
+        }
+        assertEquals(4L * SLAB_SIZE, cache.allocatedBytes());
+        // a bigger item gets the slab holding the least recently used small items
+        String v = str(SLAB_SIZE - 10, 'x');
+        cache.put("big", v);
+        assertEquals(v, cache.get("big"));
+        assertNull(cache.get("s0"));
+        assertEquals("v" + (4 * SLAB_SIZE / 64 - 1), cache.get("s" + (4 * SLAB_SIZE / 64 - 1)));
+        assertEquals(0, cache.rejectionCount());
+
+        // an emptied slab is moved back to the small items
+        cache.evict("big");
+        cache.put("s0", "v0");
+        cache.put("big2", v);
+        assertEquals(v, cache.get("big2"));
+        assertEquals("v0", cache.get("s0"));
+        assertEquals(4L * SLAB_SIZE, cache.allocatedBytes());
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        OffHeapCacheService cache = (OffHeapCacheService) this.cache;
+        cache.put("k1", "v1", 1);
+        cache.put("k2", "v2", -1);
+        Thread.sleep(1100);
+        cache.sweep();
+        assertEquals(1, cache.stats().expirationCount());
+        assertEquals(1, cache.stats().size());
+        assertEquals("v2", cache.get("k2"));
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        OffHeapCacheService cache = (OffHeapCacheService) this.cache;
+        cache.put("k1", "h\u00e9llo");
+        cache.put("k2", 5);
+        Charset utf8 = Charset.forName("UTF-8");
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertTrue(cache.writeTo("k1", os, utf8));
+        assertTrue(cache.writeTo("k2", os, utf8));
+        assertFalse(cache.writeTo("k3", os, utf8));
+        assertArrayEquals("h\u00e9llo5".getBytes(utf8), os.toByteArray());
+        assertEquals(5, cache.get("k2"));
+
+        // re-encoded for other charsets
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        os = new ByteArrayOutputStream();
+        assertTrue(cache.writeTo("k1", os, latin1));
+        assertArrayEquals("h\u00e9llo".getBytes(latin1), os.toByteArray());
+        assertArrayEquals("h\u00e9llo".getBytes(latin1), cache.getBytes("k1", latin1));
+    }
+
+    @Test
+    public void testRenderToOutputStream() throws Exception {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(RythmConfigurationKey.CACHE_SERVICE_IMPL.getKey(), cache);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            String t = "@args String x\nA@cache(\"1mn\"){[@x]}B";
+            for (int i = 0; i < 2; ++i) {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                engine.getTemplate(t, "v" + i).render(os);
+                assertEquals("A[v0]B", os.toString());
+            }
+            assertEquals("A[v0]B", engine.render(t, "v2"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
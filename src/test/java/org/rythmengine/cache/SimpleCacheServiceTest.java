@@ -5,8 +5,15 @@
  */
 package org.rythmengine.cache;
 
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.conf.RythmConfiguration;
+import org.rythmengine.conf.RythmConfigurationKey;
 import org.rythmengine.extension.ICacheService;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Test 
  */
@@ -15,4 +22,61 @@ public class SimpleCacheServiceTest extends CacheServiceTestBase {
     protected ICacheService cacheService() {
         return SimpleCacheService.INSTANCE;
     }
+
+    @After
+    public void teardown() {
+        SimpleCacheService.INSTANCE.setMaxEntries(SimpleCacheService.DEFAULT_MAX_ENTRIES);
+    }
+
+    @Test
+    public void testMaxEntries() {
+        SimpleCacheService cache = SimpleCacheService.INSTANCE;
+        cache.setMaxEntries(3);
+        long evicted = cache.stats().evictionCount();
+        cache.put("k1", "v1");
+        cache.put("k2", "v2");
+        cache.put("k3", "v3");
+        // k1 become the most recently used
+        assertEquals("v1", cache.get("k1"));
+        cache.put("k4", "v4");
+        assertEquals(3, cache.size());
+        assertNull(cache.get("k2"));
+        assertEquals("v1", cache.get("k1"));
+        assertEquals("v3", cache.get("k3"));
+        assertEquals("v4", cache.get("k4"));
+        assertEquals(evicted + 1, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testMaxEntriesConf() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_MAX_ENTRIES.getKey(), "100");
+        assertEquals(100, new RythmConfiguration(conf, null).<Integer>get(RythmConfigurationKey.CACHE_MAX_ENTRIES).intValue());
+    }
+
+    @Test
+    public void testUpdateResetExpiry() throws Exception {
+        cache.put("key1", "val1", 1);
+        Thread.sleep(600);
+        cache.put("key1", "val2", 1);
+        Thread.sleep(600);
+        assertEquals("val2", cache.get("key1"));
+        Thread.sleep(500);
+        assertNull(cache.get("key1"));
+        // swept by the timer
+        Thread.sleep(300);
+        assertEquals(0, SimpleCacheService.INSTANCE.size());
+    }
+
+    @Test
+    public void testStats() {
+        CacheStats stats = SimpleCacheService.INSTANCE.stats();
+        cache.put("key1", "val1");
+        cache.get("key1");
+        cache.get("key2");
+        CacheStats stats1 = SimpleCacheService.INSTANCE.stats();
+        assertEquals(stats.hitCount() + 1, stats1.hitCount());
+        assertEquals(stats.missCount() + 1, stats1.missCount());
+        assertEquals(1, stats1.size());
+    }
 }
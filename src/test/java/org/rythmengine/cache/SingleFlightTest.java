@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.After;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.internal.SingleFlight;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test single flight and stale-while-revalidate rendering of cached blocks
+ */
+public class SingleFlightTest extends TestBase {
+
+    private static final AtomicInteger counter = new AtomicInteger();
+    private static volatile CountDownLatch gate;
+
+    private RythmEngine engine;
+
+    public static int compute() {
+        int n = counter.incrementAndGet();
+        CountDownLatch latch = gate;
+        try {
+            if (null != latch) {
+                latch.await(5, TimeUnit.SECONDS);
+            } else {
+                Thread.sleep(200);
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return n;
+    }
+
+    private RythmEngine engine(int staleWindow) {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(RythmConfigurationKey.CACHE_STALE_WHILE_REVALIDATE.getKey(), staleWindow);
+        return new RythmEngine(conf);
+    }
+
+    @After
+    public void teardown() {
+        gate = null;
+        counter.set(0);
+        if (null != engine) {
+            engine.shutdown();
+        }
+    }
+
+    private List<Future<String>> renderConcurrently(ExecutorService executor, final String template, int threads) {
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < threads; ++i) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return engine.render(template);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        engine = engine(0);
+        String t = "@cache(\"1mn\"){[@org.rythmengine.cache.SingleFlightTest.compute()]}";
+        engine.getTemplate(t);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<String> f : renderConcurrently(executor, t, 8)) {
+                assertEquals("[1]", f.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testSingleFlightAssignedTag() throws Exception {
+        engine = engine(0);
+        String t = "@bar.flightTag().cache(\"1mn\").assign(\"s\")<@s>";
+        engine.getTemplate(t);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<String> f : renderConcurrently(executor, t, 8)) {
+                assertEquals("<[1]>", f.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        engine = engine(60);
+        String t = "@cache(\"1s\"){[@org.rythmengine.cache.SingleFlightTest.compute()]}";
+        assertEquals("[1]", engine.render(t));
+        Thread.sleep(1100);
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the first thread renders the block again and wait at the gate
+            Future<String> refresh = renderConcurrently(executor, t, 1).get(0);
+            while (counter.get() < 2) {
+                Thread.sleep(10);
+            }
+            // other threads serve the stale item without waiting
+            assertEquals("[1]", renderConcurrently(executor, t, 1).get(0).get(1, TimeUnit.SECONDS));
+            gate.countDown();
+            assertEquals("[2]", refresh.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("[2]", engine.render(t));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void testStaleMarkStoredWithValue() throws Exception {
+        engine = engine(60);
+        engine.cache("k", "v", 1);
+        assertEquals("v", engine.cached("k"));
+        assertFalse(engine.cacheStale("k"));
+        Thread.sleep(1100);
+        assertEquals("v", engine.cached("k"));
+        assertTrue(engine.cacheStale("k"));
+        // the mark goes away with the value
+        engine.evict("k");
+        assertNull(engine.cached("k"));
+        assertFalse(engine.cacheStale("k"));
+    }
+
+    @Test
+    public void testAcquireTimeout() throws Exception {
+        final SingleFlight flights = new SingleFlight();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread leader = new Thread() {
+            @Override
+            public void run() {
+                flights.acquire("k", 0);
+                acquired.countDown();
+                try {
+                    done.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                } finally {
+                    flights.release("k");
+                }
+            }
+        };
+        leader.start();
+        acquired.await();
+        long ts = System.currentTimeMillis();
+        assertFalse(flights.acquire("k", 50));
+        assertTrue(System.currentTimeMillis() - ts >= 50);
+        done.countDown();
+        leader.join();
+        assertTrue(flights.acquire("k", 50));
+        flights.release("k");
+    }
+
+}
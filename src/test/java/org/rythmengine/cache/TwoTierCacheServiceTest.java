@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.cache;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.extension.ICacheService;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test the two tier cache service with a memcached stand-in server as the far cache
+ */
+public class TwoTierCacheServiceTest extends CacheServiceTestBase {
+
+    private static MemcachedStandIn server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new MemcachedStandIn();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.shutdown();
+    }
+
+    public TwoTierCacheServiceTest() {
+        cache = cacheService();
+    }
+
+    @Override
+    protected ICacheService cacheService() {
+        return new TwoTierCacheService(server.address());
+    }
+
+    @Before
+    public void clearServer() {
+        cache.clear();
+    }
+
+    @Test
+    public void testPromote() {
+        TwoTierCacheService cache = (TwoTierCacheService) this.cache;
+        cache.put("k", "v", 10);
+        assertNull(cache.nearCache().get("k"));
+        assertEquals("v", cache.get("k"));
+        assertNull(cache.nearCache().get("k"));
+        int getCommands = server.getCommands();
+        assertEquals("v", cache.get("k"));
+        assertEquals("v", cache.nearCache().get("k"));
+        // served by the near cache
+        assertEquals("v", cache.get("k"));
+        assertEquals(1, server.getCommands() - getCommands);
+        // hot items in the near cache are updated
+        cache.put("k", "v2", 10);
+        assertEquals("v2", cache.nearCache().get("k"));
+        cache.evict("k");
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    public void testGetAll() {
+        TwoTierCacheService cache = (TwoTierCacheService) this.cache;
+        for (int i = 0; i < 40; ++i) {
+            cache.put("fragment" + i, "v" + i, 10);
+        }
+        // promote fragment0 to the near cache
+        cache.get("fragment0");
+        cache.get("fragment0");
+        int getCommands = server.getCommands();
+        Map<String, java.io.Serializable> found = cache.getAll(Arrays.asList("fragment0", "fragment1", "fragment39", "fragment40"));
+        assertEquals(1, server.getCommands() - getCommands);
+        assertEquals(3, found.size());
+        assertEquals("v0", found.get("fragment0"));
+        assertEquals("v39", found.get("fragment39"));
+    }
+
+    @Test
+    public void testSharedByEngines() {
+        String t = "@cache(\"1mn\"){[@(System.nanoTime())]}";
+        RythmEngine engine1 = engine(), engine2 = engine();
+        try {
+            String s = engine1.render(t);
+            assertEquals(s, engine2.render(t));
+        } finally {
+            engine1.shutdown();
+            engine2.shutdown();
+        }
+    }
+
+    private static RythmEngine engine() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(RythmConfigurationKey.CACHE_SERVICE_IMPL.getKey(), new TwoTierCacheService(server.address()));
+        return new RythmEngine(conf);
+    }
+}
@@ -76,6 +76,32 @@ public class ArgsParserTest extends TestBase {
         eq("\n</style>  \ns");
     }
 
+    @Test
+    public void testPositionalBinding() {
+        // args bound by position are copied into the render arg map only when it is read
+        t = "@args String a, int b\n@a-@b|@(__renderArgs.containsKey(\"a\"))|@(__get(\"a\"))-@(__getRenderArg(\"b\"))|@(__renderArgs.containsKey(\"a\"))";
+        s = r(t, "x", 3);
+        eq("x-3|false|x-3|true");
+
+        // positional binding of many args
+        StringBuilder sb = new StringBuilder("@args ");
+        StringBuilder out = new StringBuilder();
+        Object[] args = new Object[70];
+        for (int i = 0; i < args.length; ++i) {
+            if (i > 0) sb.append(", ");
+            sb.append("int a").append(i);
+            out.append("@a").append(i).append(":@(__get(\"a").append(i).append("\"))");
+            args[i] = i;
+        }
+        t = sb.append("\n").append(out).toString();
+        s = r(t, args);
+        sb.setLength(0);
+        for (int i = 0; i < args.length; ++i) {
+            sb.append(i).append(":").append(i);
+        }
+        eq(sb.toString());
+    }
+
     public static void main(String[] args) {
         run(ArgsParserTest.class);
     }
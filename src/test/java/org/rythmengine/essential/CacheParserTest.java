@@ -7,11 +7,18 @@ package org.rythmengine.essential;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.rythmengine.RythmEngine;
 import org.rythmengine.TestBase;
+import org.rythmengine.extension.IDurationParser;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.rythmengine.conf.RythmConfigurationKey.CACHE_DURATION_PARSER_IMPL;
 import static org.rythmengine.conf.RythmConfigurationKey.CACHE_ENABLED;
+import static org.rythmengine.conf.RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED;
 import static org.rythmengine.conf.RythmConfigurationKey.FEATURE_TYPE_INFERENCE_ENABLED;
 
 /**
@@ -82,6 +89,44 @@ public class CacheParserTest extends TestBase {
         eq(String.valueOf(n + 1));
     }
 
+    @Test
+    public void testDurationResolvedAtCompileTime() {
+        final AtomicInteger parsed = new AtomicInteger();
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(CACHE_ENABLED.getKey(), true);
+        conf.put(CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(FEATURE_TYPE_INFERENCE_ENABLED.getKey(), false);
+        conf.put(CACHE_DURATION_PARSER_IMPL.getKey(), new IDurationParser() {
+            @Override
+            public int parseDuration(String s) {
+                parsed.incrementAndGet();
+                return IDurationParser.DEFAULT_PARSER.parseDuration(s);
+            }
+        });
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            t = "@args int x\n@cache(\"1mn\", x){[@x]}@cache(60*60, x){(@x)}";
+            for (int i = 0; i < 5; ++i) {
+                assertEquals("[" + i + "](" + i + ")", engine.render(t, i));
+            }
+            assertEquals("[1](1)", engine.render(t, 1));
+            // parsed once when the template is compiled
+            assertEquals(1, parsed.get());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testCacheDynamicTag() {
+        System.setProperty(CACHE_PROD_ONLY_ENABLED.getKey(), "false");
+        t = "@args String tag\n@invoke(tag, x = \"ss\", y = 1).cache(\"1mn\")";
+        s = r(t, "foo.zee.x");
+        eq("x = ss, y = 1");
+        s = r(t, "bar.included");
+        eq("included content");
+    }
+
     public static void main(String[] args) {
         run(CacheParserTest.class);
     }
@@ -7,12 +7,18 @@ package org.rythmengine.essential;
 
 import org.junit.Test;
 import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
 import org.rythmengine.TestBase;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.i18n.I18nMessages;
+import org.rythmengine.utils.I18N;
+import org.rythmengine.utils.IO;
 import org.rythmengine.utils.S;
 
+import java.io.File;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
 
@@ -91,7 +97,69 @@ public class I18nTest extends TestBase {
     }
 
 
+    @Test
+    public void testFormatDifferentArgs() {
+        System.setProperty(RythmConfigurationKey.CACHE_ENABLED.getKey(), "true");
+        t = "@args int n;@i18n('template', \"planet\", n, new Date())";
+        assertContains(r(t, 3), "we detected 3 spaceships");
+        assertContains(r(t, 5), "we detected 5 spaceships");
+    }
+
+    @Test
+    public void testMessageCache() {
+        I18nMessages messages = new I18nMessages(Arrays.asList("not.exists", "messages"));
+        I18nMessages.Message msg = messages.message("foo.bar", Locale.ENGLISH);
+        assertEquals("foobar", msg.pattern());
+        assertSame(msg, messages.message("foo.bar", Locale.ENGLISH));
+        assertEquals("福吧", messages.message("foo.bar", Locale.CHINA).pattern());
+        // missing message resolved to the key
+        assertEquals("x.y", messages.message("x.y", Locale.ENGLISH).pattern());
+        assertEquals("7 spaceships", messages.message("{0} spaceships", Locale.ENGLISH).format(null, 7));
+    }
+
+    @Test
+    public void testMessageCacheBounded() {
+        I18nMessages messages = new I18nMessages(Arrays.asList("messages"));
+        I18nMessages.Message msg = messages.message("foo.bar", Locale.ENGLISH);
+        for (int i = 0; i < 5000; ++i) {
+            messages.message("dynamic." + i, Locale.ENGLISH);
+        }
+        assertSame(msg, messages.message("foo.bar", Locale.ENGLISH));
+        // keys beyond the limit are resolved but not kept
+        I18nMessages.Message dyn = messages.message("dynamic.4999", Locale.ENGLISH);
+        assertEquals("dynamic.4999", dyn.pattern());
+        assertNotSame(dyn, messages.message("dynamic.4999", Locale.ENGLISH));
+
+        messages.clear();
+        assertNotSame(msg, messages.message("foo.bar", Locale.ENGLISH));
+    }
+
+    @Test
+    public void testLiteralKeyHandle() {
+        t = "@i18n('foo.bar')@i18n('foo.bar', Locale.CHINA)@i18n('planet')";
+        s = r(t);
+        eq("foobar福吧Mars");
+    }
+
     public static void main(String[] args) {
         run(I18nTest.class);
     }
+
+    @Test
+    public void testBundleCacheClearedOnShutdown() throws Exception {
+        String name = "late_messages";
+        assertNull(I18N.bundle(null, name, Locale.US));
+        File file = new File(I18nTest.class.getResource("/messages.properties").toURI().resolve(name + ".properties"));
+        try {
+            IO.writeContent("late=true", file);
+            // the missing bundle is cached until the engine shuts down
+            assertNull(I18N.bundle(null, name, Locale.US));
+            new RythmEngine().shutdown();
+            assertEquals("true", I18N.bundle(null, name, Locale.US).getString("late"));
+        } finally {
+            file.delete();
+            I18N.clearBundleCache();
+        }
+    }
+
 }
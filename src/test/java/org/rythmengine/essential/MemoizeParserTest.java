@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013-2016 The Rythm Engine project
+ * for LICENSE and other details see:
+ * https://github.com/rythmengine/rythmengine
+ */
+package org.rythmengine.essential;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.TestBase;
+import org.rythmengine.cache.FragmentStats;
+import org.rythmengine.conf.RythmConfigurationKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test @memoize parser
+ */
+public class MemoizeParserTest extends TestBase {
+
+    private static final String CARD = "@args String name, int price\n@memoize(\"1h\")\n[@name:@price:@(System.nanoTime())]";
+
+    private RythmEngine engine;
+
+    @Before
+    public void setupEngine() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), true);
+        conf.put(RythmConfigurationKey.CACHE_PROD_ONLY_ENABLED.getKey(), false);
+        conf.put(RythmConfigurationKey.CACHE_METRICS_ENABLED.getKey(), true);
+        engine = new RythmEngine(conf);
+    }
+
+    @After
+    public void teardown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testMemoize() {
+        String s = engine.render(CARD, "a", 1);
+        assertTrue(s.startsWith("[a:1:"));
+        assertEquals(s, engine.render(CARD, "a", 1));
+        String s1 = engine.render(CARD, "a", 2);
+        assertTrue(s1.startsWith("[a:2:"));
+        assertNotSame(s, s1);
+        assertFalse(s1.equals(engine.render(CARD, "b", 2)));
+        assertEquals(s1, engine.render(CARD, "a", 2));
+
+        List<FragmentStats> stats = engine.fragmentCacheMetrics().stats();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).hitCount());
+        assertEquals(3, stats.get(0).missCount());
+        assertEquals(2, stats.get(0).line());
+    }
+
+    @Test
+    public void testDefaultDuration() {
+        String t = "@args String name\n@memoize()\n[@name:@(System.nanoTime())]";
+        String s = engine.render(t, "a");
+        assertEquals(s, engine.render(t, "a"));
+    }
+
+    @Test
+    public void testStreaming() {
+        String s = engine.render(CARD, "x", 1);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        engine.render(os, CARD, "x", 1);
+        assertEquals(s, os.toString());
+
+        StringWriter w = new StringWriter();
+        engine.render(w, CARD, "y", 1);
+        String s1 = w.toString();
+        assertTrue(s1.startsWith("[y:1:"));
+        assertEquals(s1, engine.render(CARD, "y", 1));
+    }
+
+    @Test
+    public void testInvokedAsTag() {
+        engine.registerTemplate("memoCard", engine.getTemplate(CARD));
+        String s = engine.render("@memoCard(\"a\", 1)|@memoCard(\"a\", 1)|@memoCard(\"a\", 3)");
+        String[] sa = s.split("\\|");
+        assertEquals(sa[0], sa[1]);
+        assertTrue(sa[2].startsWith("[a:3:"));
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.CACHE_ENABLED.getKey(), false);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            String s = engine.render(CARD, "a", 1);
+            assertFalse(s.equals(engine.render(CARD, "a", 1)));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
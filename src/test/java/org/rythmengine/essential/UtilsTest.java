@@ -6,7 +6,9 @@
 package org.rythmengine.essential;
 
 import org.rythmengine.TestBase;
+import org.rythmengine.utils.Formats;
 import org.rythmengine.utils.S;
+import org.rythmengine.utils.TextBuilder;
 import org.junit.Test;
 
 import java.text.NumberFormat;
@@ -146,4 +148,72 @@ public class UtilsTest extends TestBase {
         eqs(expected, S.formatCurrency(n));
         eqs("$1,000.00", S.formatCurrency(null, n, "AUD", new Locale("en")));
     }
+
+    @Test
+    public void testFormatsCache() throws Exception {
+        // formats are reused by the same thread
+        assertSame(Formats.number("#,##0.00", Locale.US), Formats.number("#,##0.00", Locale.US));
+        assertNotSame(Formats.number("#,##0.00", Locale.US), Formats.number("#,##0.00", Locale.GERMANY));
+        assertSame(Formats.date("yyyy", Locale.US, "UTC"), Formats.date("yyyy", Locale.US, "UTC"));
+        assertNotSame(Formats.date("yyyy", Locale.US, "UTC"), Formats.date("yyyy", Locale.US, "GMT+10"));
+
+        // but never shared with other threads
+        final Object[] other = new Object[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = Formats.number("#,##0.00", Locale.US);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotNull(other[0]);
+        assertNotSame(other[0], Formats.number("#,##0.00", Locale.US));
+
+        eqs("1,234.50", S.format(null, 1234.5, "#,##0.00", Locale.US));
+        eqs("1.234,50", S.format(null, 1234.5, "#,##0.00", Locale.GERMANY));
+        eqs("1970", S.format(null, new Date(0), "yyyy", Locale.US, "UTC"));
+        eqs("1969", S.format(null, new Date(0), "yyyy", Locale.US, "GMT-10"));
+    }
+
+    @Test
+    public void testChainedTextBuilder() {
+        TextBuilder root = new TextBuilder();
+        TextBuilder mid = new TextBuilder(root);
+        TextBuilder leaf = new TextBuilder(mid);
+        leaf.p("a").p('b').p(1).p(2L).p(true);
+        mid.p("-");
+        eqs("ab12true-", root.toString());
+        eqs("ab12true-", leaf.toString());
+
+        // output follows the buffer swapped into the owner
+        StringBuilder sb = new StringBuilder();
+        root.setSelfOut(sb);
+        leaf.p("c");
+        eqs("c", sb.toString());
+
+        // a builder in the chain given a buffer takes the output
+        StringBuilder sb2 = new StringBuilder();
+        mid.setSelfOut(sb2);
+        leaf.p("b");
+        eqs("b", sb2.toString());
+        eqs("c", sb.toString());
+        mid.setSelfOut(null);
+
+        // a clone joins the chain of its caller
+        TextBuilder leaf2 = leaf.clone(mid);
+        leaf2.p("e");
+        eqs("ce", sb.toString());
+        StringBuilder sb3 = new StringBuilder();
+        mid.setSelfOut(sb3);
+        leaf2.p("f");
+        eqs("f", sb3.toString());
+        mid.setSelfOut(null);
+
+        // a builder in the chain having its own buffer takes the output
+        TextBuilder clone = leaf.clone(new TextBuilder());
+        clone.p("d");
+        eqs("d", clone.toString());
+        eqs("ce", sb.toString());
+    }
 }
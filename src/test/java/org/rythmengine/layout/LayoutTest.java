@@ -7,6 +7,16 @@ package org.rythmengine.layout;
 
 import org.rythmengine.TestBase;
 import org.junit.Test;
+import org.rythmengine.Rythm;
+import org.rythmengine.RythmEngine;
+import org.rythmengine.conf.RythmConfigurationKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Test layout handling
@@ -45,6 +55,31 @@ public class LayoutTest extends TestBase {
         eqf("foo/index6.result");
     }
 
+    @Test
+    public void testRenderSectionOnly() {
+        String path = "foo/fragment.html";
+        List<String> trace = new ArrayList<String>();
+        // the template stops once the section is complete
+        eqs("main of x", Rythm.renderSection(path, "main", "x", trace).trim());
+        assertTrue(trace.isEmpty());
+        // inherits the default content of the layout
+        eqs("[def-footer] by x", Rythm.renderSection(path, "footer", "x", trace).trim());
+        assertTrue(trace.isEmpty());
+        // the default content of the layout
+        eqs("def-nav", Rythm.renderSection(path, "nav", "x", trace).trim());
+        assertEquals(1, trace.size());
+        // inline tag
+        eqs("hello x", Rythm.renderSection(path, "greeting", "x", trace).trim());
+        eqs("", Rythm.renderSection(path, "notFound", "x", trace));
+
+        trace.clear();
+        s = r(path, "x", trace);
+        assertContains(s, "<h1>x</h1>");
+        assertContains(s, "body");
+        assertContains(s, "[def-footer] by x");
+        assertEquals(1, trace.size());
+    }
+
     @Test
     public void testRenderInherited() {
         s = r("foo/index10.html");
@@ -69,6 +104,63 @@ public class LayoutTest extends TestBase {
         eqf("foo/index9.result");
     }
 
+    @Test
+    public void testRenderToStream() throws Exception {
+        // the layout template writes the content and sections to the output
+        for (String path : new String[]{"foo/index.html", "foo/index5.html", "foo/index6.html", "foo/index10.html"}) {
+            String expected = Rythm.engine().resourceManager().get(path.replace(".html", ".result")).asTemplateContent();
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            Rythm.engine().render(os, path);
+            eqs(expected, os.toString());
+            StringWriter w = new StringWriter();
+            Rythm.engine().render(w, path);
+            eqs(expected, w.toString());
+        }
+    }
+
+    // record the output flushed to the writer
+    private static class FlushRecorder extends StringWriter {
+        List<String> flushed = new ArrayList<String>();
+
+        @Override
+        public void flush() {
+            flushed.add(toString());
+        }
+    }
+
+    @Test
+    public void testEarlyFlush() throws Exception {
+        String path = "foo/earlyFlush.html";
+        String expected = "<head>Home</head>\n<body>foo</body>\n<footer>bye</footer>";
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(RythmConfigurationKey.FEATURE_LAYOUT_EARLY_FLUSH_ENABLED.getKey(), true);
+        RythmEngine engine = new RythmEngine(conf);
+        try {
+            FlushRecorder w = new FlushRecorder();
+            engine.render(w, path);
+            eqs(expected, w.toString());
+            // the layout head is flushed before the extending template renders
+            assertEquals(1, w.flushed.size());
+            eqs("<head>Home</head>\n<body>", w.flushed.get(0));
+
+            // rendering to string is not affected
+            eqs(expected, engine.render(path));
+        } finally {
+            engine.shutdown();
+        }
+
+        conf.put(RythmConfigurationKey.FEATURE_LAYOUT_EARLY_FLUSH_ENABLED.getKey(), false);
+        engine = new RythmEngine(conf);
+        try {
+            FlushRecorder w = new FlushRecorder();
+            engine.render(w, path);
+            eqs(expected, w.toString());
+            assertTrue(w.flushed.isEmpty());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         run(LayoutTest.class);
     }
@@ -5,9 +5,14 @@
  */
 package org.rythmengine.tag;
 
+import org.rythmengine.Rythm;
 import org.rythmengine.TestBase;
 import org.junit.Test;
 import org.rythmengine.conf.RythmConfigurationKey;
+import org.rythmengine.template.ITemplate;
+import org.rythmengine.template.JavaTagBase;
+
+import java.io.StringWriter;
 
 /**
  * Test invoke other templates
@@ -77,6 +82,59 @@ public class InvokeTemplateTest extends TestBase {
         eq("Hello\nHello\nHello");
     }
     
+    @Test
+    public void testNestedTagBody() {
+        t = "<@bar.doThrice(){[@bar.doThrice(){x}]}>";
+        s = r(t);
+        eq("<[x\nx\nx]\n[x\nx\nx]\n[x\nx\nx]>");
+
+        StringWriter w = new StringWriter();
+        Rythm.engine().render(w, t);
+        assertEquals(s, w.toString());
+
+        // the tag output captured to be escaped
+        t = "@bar.doThrice(){[@bar.header().escape()]}";
+        s = r(t);
+        eq("[&lt;h1&gt;&lt;/h1&gt;]\n[&lt;h1&gt;&lt;/h1&gt;]\n[&lt;h1&gt;&lt;/h1&gt;]");
+    }
+
+    @Test
+    public void testCaptureTagOutput() {
+        Rythm.engine().registerTemplate(new JavaTagBase() {
+            @Override
+            public String __getName() {
+                return "upper";
+            }
+
+            @Override
+            protected void call(__ParameterList params, __Body body) {
+                body.render(__getBuffer());
+                String s = __getBuffer().toString();
+                __getBuffer().setLength(0);
+                p(s.toUpperCase());
+            }
+        });
+        t = "abc@upper(){hello}";
+        s = r(t);
+        eq("abcHELLO");
+
+        // a tag with java code renders into its own buffer
+        t = "xy@bar.selfLength()";
+        s = r(t);
+        eq("xyabc3");
+        assertFalse(renderIntoCaller("bar/selfLength.html"));
+        assertTrue(renderIntoCaller("bar/header.html"));
+    }
+
+    private static boolean renderIntoCaller(String template) {
+        try {
+            ITemplate tag = Rythm.engine().getTemplate(template);
+            return tag.getClass().getDeclaredMethod("__renderIntoCaller") != null;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     @Test
     public void testRenderBodyCallback() {
         t = "@bar.findEvenElements(Arrays.asList(\"1,2,3,4\".split(\",\"))).callback(String s){\nfound: @s\n}";
@@ -105,6 +163,23 @@ public class InvokeTemplateTest extends TestBase {
         eqf("testTagWithCallback.result");
     }
     
+    @Test
+    public void testCallerScope() {
+        // declared args are bound from the caller chain, others are looked up on demand
+        t = "@args String title, Integer page, String user\n@bar.scopeOuter()";
+        s = r(t, "home", 3, "tom");
+        eq("home:3:tom");
+
+        t = "@args String title, Integer page, String user\n@bar.scopeOuter(title: \"about\")";
+        s = r(t, "home", 3, "tom");
+        eq("about:3:tom");
+
+        // expressions evaluated in a tag see the caller scope
+        t = "@args String title, Integer page, String user\n@bar.scopeEval(title: \"about\")";
+        s = r(t, "home", 3, "tom");
+        eq("about:tom:4");
+    }
+
     @Test
     public void testMultipleRoot() {
         System.setProperty(RythmConfigurationKey.HOME_TEMPLATE.getKey(), "root, root2");